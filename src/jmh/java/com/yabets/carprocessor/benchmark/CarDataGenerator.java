@@ -0,0 +1,248 @@
+package com.yabets.carprocessor.benchmark;
+
+import com.opencsv.exceptions.CsvValidationException;
+import com.yabets.carprocessor.currency.ExchangeRates;
+import com.yabets.carprocessor.model.Car;
+import com.yabets.carprocessor.model.Price;
+import com.yabets.carprocessor.model.Prices;
+import com.yabets.carprocessor.store.CarStore;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Deterministic fixtures shaped like production feeds: a few brands dominate, some prices and release dates are missing
+public final class CarDataGenerator {
+
+    public static final int BRANDS = 200;
+    public static final int MODELS_PER_BRAND = 25;
+
+    private static final String[] TYPES = {"SUV", "Sedan", "Truck"};
+    private static final String[] CURRENCIES = {"EUR", "GBP", "JPY"};
+    private static final double[] RATES = {0.92, 0.79, 150.0};
+
+    // Zipf exponent of the brand distribution; the top brand gets roughly a sixth of all cars
+    private static final double BRAND_SKEW = 1.1;
+
+    private static final double MISSING_USD = 0.02;
+    private static final double MISSING_OTHER = 0.10;
+
+    private static final LocalDate FIRST_RELEASE = LocalDate.of(2015, 1, 1);
+
+    // Held so the level set below is not lost when the logger is collected
+    private static final Logger APP_LOGGER = Logger.getLogger("com.yabets.carprocessor");
+
+    private final long seed;
+    private final double[] brandWeights = new double[BRANDS];
+
+    // Names built once, so generating 10M cars does not format 10M strings
+    private final String[] brandNames = new String[BRANDS];
+    private final String[][] modelNames = new String[BRANDS][MODELS_PER_BRAND];
+
+    // One car before brand join: indexes into the brand and model tables, NaN for a missing price
+    private record CarSpec(String type, int brand, int model, double usd, double[] others) {
+    }
+
+    public CarDataGenerator(long seed) {
+
+        this.seed = seed;
+
+        double total = 0;
+
+        for (int i = 0; i < BRANDS; i++) {
+
+            total += 1 / Math.pow(i + 1, BRAND_SKEW);
+            brandWeights[i] = total;
+        }
+
+        for (int i = 0; i < BRANDS; i++) {
+
+            brandWeights[i] /= total;
+            brandNames[i] = brand(i);
+
+            for (int m = 0; m < MODELS_PER_BRAND; m++) {
+
+                modelNames[i][m] = model(i, m);
+            }
+        }
+    }
+
+    // The loader logs every load at INFO, which would otherwise be measured along with the code under test
+    public static void quietLogging() {
+        APP_LOGGER.setLevel(Level.WARNING);
+    }
+
+    public static String brand(int index) {
+        return String.format(Locale.ROOT, "Brand-%03d", index);
+    }
+
+    public static String model(int brand, int model) {
+        return String.format(Locale.ROOT, "M%03d-%02d", brand, model);
+    }
+
+    // Every 50th brand is left out of brands.csv, so its cars have no release date
+    public static LocalDate releaseDate(int brand) {
+        return brand % 50 == 49 ? null : FIRST_RELEASE.plusDays(brand * 37L % 3650);
+    }
+
+    // Joined cars as the loader would produce them from the files below
+    public List<Car> cars(int count) {
+
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Car> cars = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+
+            CarSpec spec = next(random);
+            List<Price> priceList = new ArrayList<>(4);
+
+            if (!Double.isNaN(spec.usd())) { priceList.add(new Price("USD", spec.usd())); }
+
+            for (int c = 0; c < CURRENCIES.length; c++) {
+
+                if (!Double.isNaN(spec.others()[c])) { priceList.add(new Price(CURRENCIES[c], spec.others()[c])); }
+            }
+
+            Prices prices = new Prices();
+            prices.setPrices(priceList);
+
+            cars.add(new Car(spec.type(), modelNames[spec.brand()][spec.model()], prices, brandNames[spec.brand()], releaseDate(spec.brand())));
+        }
+
+        return cars;
+    }
+
+    // The store over cars(count), priced with the bundled rates as the application starts, so converted
+    // prices are part of the work measured
+    public CarStore store(int count) throws IOException, CsvValidationException {
+        return new CarStore(cars(count), ExchangeRates.bundled());
+    }
+
+    // Same cars as cars(count), in the cars.xml layout
+    public void writeCarsXml(Path file, int count) throws IOException {
+
+        SplittableRandom random = new SplittableRandom(seed);
+
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<cars>\n");
+
+            for (int i = 0; i < count; i++) {
+
+                CarSpec spec = next(random);
+
+                out.write("    <car>\n        <type>" + spec.type() + "</type>\n        <model>" + modelNames[spec.brand()][spec.model()] + "</model>\n");
+
+                if (!Double.isNaN(spec.usd())) {
+
+                    out.write("        <price currency=\"USD\">" + format(spec.usd()) + "</price>\n");
+                }
+
+                out.write("        <prices>\n");
+
+                for (int c = 0; c < CURRENCIES.length; c++) {
+
+                    if (Double.isNaN(spec.others()[c])) { continue; }
+
+                    out.write("            <price currency=\"" + CURRENCIES[c] + "\">" + format(spec.others()[c]) + "</price>\n");
+                }
+
+                out.write("        </prices>\n    </car>\n");
+            }
+
+            out.write("</cars>\n");
+        }
+    }
+
+    // The generated brands first, then filler brands up to rows; filler dates repeat heavily and
+    // every 1000th filler name is quoted with a comma, so both CSV parser paths are exercised
+    public void writeBrandsCsv(Path file, int rows) throws IOException {
+
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+
+            out.write("Brand,ReleaseDate\n");
+
+            for (int i = 0; i < Math.min(rows, BRANDS); i++) {
+
+                LocalDate date = releaseDate(i);
+
+                if (date != null) { out.write(brand(i) + "," + format(date) + "\n"); }
+            }
+
+            for (int i = BRANDS; i < rows; i++) {
+
+                String name = i % 1000 == 0 ? "\"Filler, " + i + "\"" : "Filler-" + i;
+
+                out.write(name + "," + format(FIRST_RELEASE.plusDays(i % 365)) + "\n");
+            }
+        }
+    }
+
+    public void writeModelsCsv(Path file) throws IOException {
+
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+
+            out.write("Model,Brand\n");
+
+            for (int b = 0; b < BRANDS; b++) {
+
+                for (int m = 0; m < MODELS_PER_BRAND; m++) {
+
+                    out.write(model(b, m) + "," + brand(b) + "\n");
+                }
+            }
+        }
+    }
+
+    private CarSpec next(SplittableRandom random) {
+
+        String type = TYPES[random.nextInt(TYPES.length)];
+        int brand = pickBrand(random.nextDouble());
+        int model = random.nextInt(MODELS_PER_BRAND);
+
+        double base = 15_000 + random.nextInt(1_050) * 100;
+        double usd = random.nextDouble() < MISSING_USD ? Double.NaN : base;
+
+        double[] others = new double[CURRENCIES.length];
+
+        for (int c = 0; c < CURRENCIES.length; c++) {
+
+            others[c] = random.nextDouble() < MISSING_OTHER ? Double.NaN : Math.round(base * RATES[c]);
+        }
+
+        return new CarSpec(type, brand, model, usd, others);
+    }
+
+    private int pickBrand(double u) {
+
+        int low = 0;
+        int high = BRANDS - 1;
+
+        while (low < high) {
+
+            int mid = (low + high) >>> 1;
+
+            if (brandWeights[mid] < u) { low = mid + 1; } else { high = mid; }
+        }
+
+        return low;
+    }
+
+    // Generated prices are whole numbers, so this matches %.2f without its cost at 10M rows
+    private static String format(double value) {
+        return (long) value + ".00";
+    }
+
+    private static String format(LocalDate date) {
+        return String.format(Locale.ROOT, "%02d/%02d/%04d", date.getMonthValue(), date.getDayOfMonth(), date.getYear());
+    }
+}
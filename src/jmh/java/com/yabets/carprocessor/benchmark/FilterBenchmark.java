@@ -0,0 +1,74 @@
+package com.yabets.carprocessor.benchmark;
+
+import com.yabets.carprocessor.filter.AttributeFilter;
+import com.yabets.carprocessor.filter.AttributeFilter.Attribute;
+import com.yabets.carprocessor.filter.BrandPriceFilter;
+import com.yabets.carprocessor.filter.BrandReleaseDateFilter;
+import com.yabets.carprocessor.store.CarStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// Every CarFilter over a generated store; the top brand holds the most rows, so it is the costliest brand to filter
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FilterBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private static final String TOP_BRAND = CarDataGenerator.brand(0);
+
+    private static final LocalDate START = LocalDate.of(2015, 1, 1);
+    private static final LocalDate END = LocalDate.of(2019, 12, 31);
+
+    private CarStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        CarDataGenerator.quietLogging();
+
+        store = new CarDataGenerator(42).store(size);
+    }
+
+    @Benchmark
+    public int[] brandPrice() {
+        return new BrandPriceFilter(TOP_BRAND, 20_000, 60_000, "USD").filter(store);
+    }
+
+    @Benchmark
+    public int[] anyBrandPrice() {
+        return new BrandPriceFilter(null, 20_000, 60_000, "EUR").filter(store);
+    }
+
+    @Benchmark
+    public int[] brandReleaseDate() {
+        return new BrandReleaseDateFilter(TOP_BRAND, START, END).filter(store);
+    }
+
+    @Benchmark
+    public int[] anyBrandReleaseDate() {
+        return new BrandReleaseDateFilter(null, START, END).filter(store);
+    }
+
+    @Benchmark
+    public int[] type() {
+        return new AttributeFilter(Attribute.TYPE, "SUV").filter(store);
+    }
+
+    @Benchmark
+    public int[] model() {
+        return new AttributeFilter(Attribute.MODEL, CarDataGenerator.model(0, 0)).filter(store);
+    }
+}
@@ -0,0 +1,49 @@
+package com.yabets.carprocessor.benchmark;
+
+import com.yabets.carprocessor.model.Car;
+import com.yabets.carprocessor.output.OutputFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Rendering only: output goes to a null writer, so terminal and disk speed stay out of the numbers
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FormatterBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"table", "json", "xml"})
+    public String format;
+
+    private List<Car> cars;
+    private OutputFormatter formatter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        CarDataGenerator.quietLogging();
+
+        cars = new CarDataGenerator(42).cars(size);
+        formatter = OutputFormatter.forFormat(format);
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+
+        formatter.write(cars, Writer.nullWriter());
+    }
+}
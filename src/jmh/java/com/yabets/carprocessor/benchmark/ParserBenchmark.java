@@ -0,0 +1,100 @@
+package com.yabets.carprocessor.benchmark;
+
+import com.yabets.carprocessor.catalog.ModelCatalog;
+import com.yabets.carprocessor.catalog.ModelCatalog.UnknownModelPolicy;
+import com.yabets.carprocessor.model.BrandInfo;
+import com.yabets.carprocessor.parser.BrandCsvParser;
+import com.yabets.carprocessor.parser.CarLoader;
+import com.yabets.carprocessor.parser.CarXmlParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Parsing and joining generated files: each invocation reads them from disk as the CLI would
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParserBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Path directory;
+    private Path carsFile;
+    private Path brandsFile;
+    private URL carsUrl;
+    private URL brandsUrl;
+    private CarLoader loader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        CarDataGenerator.quietLogging();
+
+        CarDataGenerator generator = new CarDataGenerator(42);
+
+        directory = Files.createTempDirectory("car-bench");
+        carsFile = directory.resolve("cars.xml");
+        brandsFile = directory.resolve("brands.csv");
+        Path modelsFile = directory.resolve("models.csv");
+
+        generator.writeCarsXml(carsFile, size);
+        generator.writeBrandsCsv(brandsFile, size);
+        generator.writeModelsCsv(modelsFile);
+
+        carsUrl = carsFile.toUri().toURL();
+        brandsUrl = brandsFile.toUri().toURL();
+
+        try (InputStream in = Files.newInputStream(modelsFile)) {
+
+            loader = new CarLoader(Runtime.getRuntime().availableProcessors(), ModelCatalog.parse(in), UnknownModelPolicy.UNKNOWN);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+
+        Files.deleteIfExists(carsFile);
+        Files.deleteIfExists(brandsFile);
+        Files.deleteIfExists(directory.resolve("models.csv"));
+        Files.deleteIfExists(directory);
+    }
+
+    // Streams cars into the blackhole, so the list the CLI would build is left out
+    @Benchmark
+    public long parseCars(Blackhole blackhole) throws Exception {
+
+        try (InputStream in = Files.newInputStream(carsFile)) {
+
+            return new CarXmlParser(progress -> { }, Long.MAX_VALUE).parse(in, blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public List<BrandInfo> parseBrands() throws Exception {
+
+        return new BrandCsvParser().parse(Files.newInputStream(brandsFile));
+    }
+
+    // Both files parsed concurrently and joined on brand, as on startup
+    @Benchmark
+    public CarLoader.Result loadAndJoin() throws Exception {
+
+        return loader.load(List.of(carsUrl), brandsUrl);
+    }
+}
@@ -0,0 +1,72 @@
+package com.yabets.carprocessor.benchmark;
+
+import com.yabets.carprocessor.sorter.CurrencyTypeSorter;
+import com.yabets.carprocessor.sorter.PriceSorter;
+import com.yabets.carprocessor.sorter.ReleaseYearSorter;
+import com.yabets.carprocessor.store.CarStore;
+import com.yabets.carprocessor.store.Rows;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// Every CarSorter over all rows, as a full sort and as the top-K path a limit takes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SorterBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private static final int LIMIT = 100;
+
+    private CarStore store;
+    private int[] rows;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        CarDataGenerator.quietLogging();
+
+        store = new CarDataGenerator(42).store(size);
+        rows = Rows.all(size);
+    }
+
+    @Benchmark
+    public int[] price() {
+        return new PriceSorter("USD").sort(store, rows);
+    }
+
+    @Benchmark
+    public int[] priceTop() {
+        return new PriceSorter("USD").sort(store, rows, LIMIT);
+    }
+
+    @Benchmark
+    public int[] releaseYear() {
+        return new ReleaseYearSorter().sort(store, rows);
+    }
+
+    @Benchmark
+    public int[] releaseYearTop() {
+        return new ReleaseYearSorter().sort(store, rows, LIMIT);
+    }
+
+    @Benchmark
+    public int[] currencyType() {
+        return new CurrencyTypeSorter().sort(store, rows);
+    }
+
+    @Benchmark
+    public int[] currencyTypeTop() {
+        return new CurrencyTypeSorter().sort(store, rows, LIMIT);
+    }
+}
@@ -1,20 +1,279 @@
 package com.yabets.carprocessor;
 
+import com.yabets.carprocessor.cache.QueryCache;
+import com.yabets.carprocessor.catalog.ModelCatalog;
+import com.yabets.carprocessor.catalog.ModelCatalog.UnknownModelPolicy;
 import com.yabets.carprocessor.cli.CarProcessorCli;
+import com.yabets.carprocessor.loadtest.CommandReplay;
+import com.yabets.carprocessor.loadtest.ReplayLog;
+import com.yabets.carprocessor.metrics.Metrics;
+import com.yabets.carprocessor.parser.CarLoader;
+import com.yabets.carprocessor.query.QueryParser;
+import com.yabets.carprocessor.server.CarQueryServer;
+import com.yabets.carprocessor.sorter.CurrencyPolicy;
+import com.yabets.carprocessor.store.RowExecutor;
+import com.yabets.carprocessor.util.Utils;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
 
 public class Main {
 
+    // Loaded CLI plus how to drive it; script is null when batch commands come from stdin,
+    // serve and replay are null unless the HTTP server or a load test should run instead of the CLI
+    private record Launch(CarProcessorCli cli, boolean batch, Path script, boolean failFast, InetSocketAddress serve, Replay replay) {
+    }
+
+    // A load test replaying log from workers threads; report is null when only the summary is printed
+    private record Replay(ReplayLog log, int workers, Duration warmup, Duration duration, Path report) {
+    }
+
     public static void main(String[] args) {
 
+        int failed = 0;
+
         try {
 
-            CarProcessorCli cli = new CarProcessorCli();
-            cli.run();
+            Launch launch = launch(args);
+
+            if (launch.serve() != null) {
+
+                CarQueryServer server = new CarQueryServer(launch.serve(), launch.cli()::store);
+                server.start();
+
+                // The server threads keep the process alive; stop accepting and drain on Ctrl+C or SIGTERM
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(2)));
+                return;
+            }
+
+            if (launch.replay() != null) {
+
+                failed = replay(launch.replay(), launch.cli());
+
+            } else if (launch.batch()) {
+
+                try (BufferedReader commands = launch.script() != null
+                        ? Files.newBufferedReader(launch.script(), StandardCharsets.UTF_8)
+                        : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+
+                    failed = launch.cli().runBatch(commands, launch.failFast());
+                }
+
+            } else {
+
+                launch.cli().run();
+            }
 
         } catch (Exception e) {
 
             System.err.println("Application error: " + e.getMessage());
             System.exit(1);
         }
+
+        // Cron and shell scripts see a failed command in the exit status, as do replays with errors
+        if (failed > 0) {
+
+            System.exit(2);
+        }
+    }
+
+    private static Launch launch(String[] args) throws Exception {
+
+        int threads = 1;
+        int threshold = RowExecutor.DEFAULT_THRESHOLD;
+        int cacheEntries = QueryCache.DEFAULT_MAX_ENTRIES;
+        long cacheBytes = QueryCache.DEFAULT_MAX_BYTES;
+        boolean cacheRendered = false;
+        Path snapshotFile = null;
+        Path dataDir = null;
+        boolean watch = false;
+        String carGlob = CarProcessorCli.DEFAULT_CAR_FILES;
+        int loadThreads = Runtime.getRuntime().availableProcessors();
+        Path modelsFile = null;
+        Path ratesFile = null;
+        UnknownModelPolicy unknownModels = UnknownModelPolicy.UNKNOWN;
+        boolean batch = false;
+        Path script = null;
+        boolean failFast = false;
+        InetSocketAddress serve = null;
+        Path replayLog = null;
+        int workers = 4;
+        long warmupSeconds = 5;
+        long durationSeconds = 30;
+        Path report = null;
+
+        for (int i = 0; i < args.length; i++) {
+
+            switch (args[i]) {
+                case "--threads" -> threads = (int) parseLong(args, ++i, "--threads", 1, Integer.MAX_VALUE);
+                case "--parallel-threshold" -> threshold = (int) parseLong(args, ++i, "--parallel-threshold", 1, Integer.MAX_VALUE);
+                case "--cache-entries" -> cacheEntries = (int) parseLong(args, ++i, "--cache-entries", 0, Integer.MAX_VALUE);
+                case "--cache-bytes" -> cacheBytes = parseLong(args, ++i, "--cache-bytes", 0, Long.MAX_VALUE);
+                case "--cache-rendered" -> cacheRendered = true;
+                case "--page-size" -> Utils.setPageSize((int) parseLong(args, ++i, "--page-size", 0, Integer.MAX_VALUE));
+                case "--export-threads" -> Utils.setExportThreads((int) parseLong(args, ++i, "--export-threads", 1, Integer.MAX_VALUE));
+                case "--snapshot" -> snapshotFile = Path.of(requireValue(args, ++i, "--snapshot"));
+                case "--data-dir" -> dataDir = Path.of(requireValue(args, ++i, "--data-dir"));
+                case "--watch" -> watch = true;
+                case "--cars" -> carGlob = requireValue(args, ++i, "--cars");
+                case "--load-threads" -> loadThreads = (int) parseLong(args, ++i, "--load-threads", 1, Integer.MAX_VALUE);
+                case "--models" -> modelsFile = Path.of(requireValue(args, ++i, "--models"));
+                case "--rates" -> ratesFile = Path.of(requireValue(args, ++i, "--rates"));
+                case "--currency-policy" -> QueryParser.setCurrencyPolicy(CurrencyPolicy.parse(requireValue(args, ++i, "--currency-policy")));
+                case "--unknown-models" -> unknownModels = parsePolicy(requireValue(args, ++i, "--unknown-models"));
+                case "--batch" -> batch = true;
+                case "--script" -> script = Path.of(requireValue(args, ++i, "--script"));
+                case "--fail-fast" -> failFast = true;
+                case "--serve" -> serve = parseAddress(requireValue(args, ++i, "--serve"));
+                case "--replay" -> replayLog = Path.of(requireValue(args, ++i, "--replay"));
+                case "--workers" -> workers = (int) parseLong(args, ++i, "--workers", 1, 10_000);
+                case "--warmup" -> warmupSeconds = parseLong(args, ++i, "--warmup", 0, Integer.MAX_VALUE);
+                case "--duration" -> durationSeconds = parseLong(args, ++i, "--duration", 1, Integer.MAX_VALUE);
+                case "--report" -> report = Path.of(requireValue(args, ++i, "--report"));
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        // Below the threshold, or with a single thread, filters and sorts stay sequential
+        if (threads > 1) {
+
+            Utils.setExecutor(RowExecutor.parallel(threads, threshold));
+        }
+
+        // A zero budget turns the query cache off
+        Utils.setCache(new QueryCache(cacheEntries, cacheBytes, cacheRendered));
+
+        Metrics.exportJmx(Utils::cacheStats);
+
+        if (serve != null && (batch || script != null)) {
+
+            throw new IllegalArgumentException("--serve cannot be combined with --batch or --script");
+        }
+
+        if (replayLog != null && (serve != null || batch || script != null)) {
+
+            throw new IllegalArgumentException("--replay cannot be combined with --serve, --batch or --script");
+        }
+
+        // Checked before the data is loaded, so a typo fails fast
+        if (script != null && !Files.isReadable(script)) {
+
+            throw new IllegalArgumentException("Script not found: " + script);
+        }
+
+        if (ratesFile != null && !Files.isReadable(ratesFile)) {
+
+            throw new IllegalArgumentException("Rates file not found: " + ratesFile);
+        }
+
+        if (replayLog != null && !Files.isReadable(replayLog)) {
+
+            throw new IllegalArgumentException("Replay log not found: " + replayLog);
+        }
+
+        Replay replay = replayLog != null
+                ? new Replay(ReplayLog.read(replayLog), workers, Duration.ofSeconds(warmupSeconds), Duration.ofSeconds(durationSeconds), report)
+                : null;
+
+        CarLoader loader = new CarLoader(loadThreads, loadCatalog(modelsFile), unknownModels);
+        CarProcessorCli cli = new CarProcessorCli(loader, dataDir, carGlob, snapshotFile, ratesFile, watch);
+
+        return new Launch(cli, batch || script != null, script, failFast, serve, replay);
+    }
+
+    // Returns the number of failed commands
+    private static int replay(Replay replay, CarProcessorCli cli) throws Exception {
+
+        if (replay.log().skipped() > 0) {
+
+            System.err.println("Replay: skipped " + replay.log().skipped() + " log lines without a filter, sort or query command");
+        }
+
+        CommandReplay.Report report = new CommandReplay(replay.log(), replay.workers(), cli::store).run(replay.warmup(), replay.duration());
+
+        CommandReplay.print(report, System.out);
+
+        if (replay.report() != null) {
+
+            CommandReplay.write(report, replay.report());
+            System.out.println("Report written to " + replay.report());
+        }
+
+        return (int) Math.min(report.errors(), Integer.MAX_VALUE);
+    }
+
+    private static ModelCatalog loadCatalog(Path modelsFile) throws Exception {
+
+        if (modelsFile == null) {
+
+            return ModelCatalog.bundled();
+        }
+
+        try (InputStream csvStream = Files.newInputStream(modelsFile)) {
+
+            return ModelCatalog.parse(csvStream);
+        }
+    }
+
+    // [host:]port; without a host the server listens on every interface
+    private static InetSocketAddress parseAddress(String value) {
+
+        int colon = value.lastIndexOf(':');
+        String host = colon >= 0 ? value.substring(0, colon) : null;
+
+        String[] port = {colon >= 0 ? value.substring(colon + 1) : value};
+        int number = (int) parseLong(port, 0, "--serve", 0, 65535);
+
+        return host != null ? new InetSocketAddress(host, number) : new InetSocketAddress(number);
+    }
+
+    private static UnknownModelPolicy parsePolicy(String value) {
+
+        try {
+
+            return UnknownModelPolicy.valueOf(value.toUpperCase(Locale.ROOT));
+
+        } catch (IllegalArgumentException e) {
+
+            throw new IllegalArgumentException("Invalid value for --unknown-models: " + value + " (expected skip, unknown or fail)");
+        }
+    }
+
+    private static String requireValue(String[] args, int index, String option) {
+
+        if (index >= args.length) {
+
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+
+        return args[index];
+    }
+
+    private static long parseLong(String[] args, int index, String option, long min, long max) {
+
+        String text = requireValue(args, index, option);
+
+        try {
+
+            long value = Long.parseLong(text);
+
+            if (value < min || value > max) {
+
+                throw new IllegalArgumentException("Value for " + option + " out of range: " + text);
+            }
+
+            return value;
+
+        } catch (NumberFormatException e) {
+
+            throw new IllegalArgumentException("Invalid value for " + option + ": " + text);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,271 @@
+package com.yabets.carprocessor.cache;
+
+import com.yabets.carprocessor.store.CarStore;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+// LRU cache of query results keyed by the store and the query's canonical description. Lookups take
+// no lock, so concurrent requests never queue behind each other; only eviction is serialized. Entries
+// belong to one CarStore: handing in a newer store (a reload) drops everything cached so far, while
+// requests still running against an older store bypass the cache instead of taking it back.
+public class QueryCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    // Larger results are streamed to the output rather than rendered into a cached string
+    public static final int MAX_RENDERED_ROWS = 10_000;
+
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+
+    public record Stats(int entries, long bytes, long hits, long misses, long renderedHits,
+                        long evictions, long invalidations) {
+
+        public double hitRate() {
+            return hits + misses > 0 ? (double) hits / (hits + misses) : 0.0;
+        }
+    }
+
+    // The store is part of the key, so a result computed against an old store is never served for a new one
+    private record Key(CarStore store, String query) {}
+
+    // Eviction candidate; lastUsed is read once so the sort sees a stable order while lookups go on
+    private record Candidate(Key key, Entry entry, long lastUsed) {}
+
+    private static class Entry {
+
+        private final int[] rows;
+        private final Map<String, String> rendered = new ConcurrentHashMap<>();
+        private volatile long lastUsed;
+        private long bytes; // Guarded by the entry's monitor, as is removed
+        private boolean removed;
+
+        Entry(String key, int[] rows, long lastUsed) {
+
+            this.rows = rows;
+            this.lastUsed = lastUsed;
+            this.bytes = ENTRY_OVERHEAD_BYTES + key.length() * 2L + rows.length * 4L;
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final boolean cacheRendered;
+
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicReference<CarStore> store = new AtomicReference<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    // Logical time for recency: inserts advance it and hits only read it, so hits on different entries
+    // never write shared state. Entries touched between two inserts tie, which eviction tolerates
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder renderedHits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public QueryCache(int maxEntries, long maxBytes, boolean cacheRendered) {
+
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.cacheRendered = cacheRendered;
+    }
+
+    public static QueryCache disabled() {
+        return new QueryCache(0, 0, false);
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0 && maxBytes > 0;
+    }
+
+    public boolean cachesRendered(int rowCount) {
+        return isEnabled() && cacheRendered && rowCount <= MAX_RENDERED_ROWS;
+    }
+
+    // Cached row selection, or null on a miss
+    public int[] rows(CarStore store, String key) {
+
+        if (!isEnabled() || !bind(store)) { return null; }
+
+        Entry entry = entries.get(new Key(store, key));
+
+        if (entry == null) {
+
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        entry.lastUsed = clock.get();
+
+        return entry.rows;
+    }
+
+    public void putRows(CarStore store, String key, int[] rows) {
+
+        if (!isEnabled() || !bind(store)) { return; }
+
+        Key mapping = new Key(store, key);
+        Entry entry = new Entry(key, rows, clock.incrementAndGet());
+
+        bytes.addAndGet(entry.bytes);
+
+        Entry previous = entries.put(mapping, entry);
+
+        if (previous != null) { retire(previous); }
+
+        // A newer store bound since the check may have swept the entries before this one went in;
+        // take it back out so it does not pin the old store
+        if (this.store.get() != store) {
+
+            if (entries.remove(mapping, entry)) { retire(entry); }
+
+            return;
+        }
+
+        evict();
+    }
+
+    // Cached rendering of the entry in the given output format, or null
+    public String rendered(CarStore store, String key, String format) {
+
+        if (!isEnabled() || !bind(store)) { return null; }
+
+        Entry entry = entries.get(new Key(store, key));
+        String text = entry != null ? entry.rendered.get(format) : null;
+
+        if (text != null) {
+
+            renderedHits.increment();
+            entry.lastUsed = clock.get();
+        }
+
+        return text;
+    }
+
+    public void putRendered(CarStore store, String key, String format, String text) {
+
+        if (!cacheRendered || !isEnabled() || !bind(store)) { return; }
+
+        Entry entry = entries.get(new Key(store, key));
+
+        if (entry == null) { return; }
+
+        synchronized (entry) {
+
+            // Evicted since the lookup: its bytes are no longer counted, so don't add to them
+            if (entry.removed) { return; }
+
+            String previous = entry.rendered.put(format, text);
+            long delta = text.length() * 2L - (previous != null ? previous.length() * 2L : 0);
+
+            entry.bytes += delta;
+            bytes.addAndGet(delta);
+        }
+
+        evict();
+    }
+
+    public void invalidate() {
+
+        if (removeIf(key -> true) > 0) { invalidations.increment(); }
+    }
+
+    public Stats stats() {
+        return new Stats(entries.size(), bytes.get(), hits.sum(), misses.sum(), renderedHits.sum(),
+                evictions.sum(), invalidations.sum());
+    }
+
+    // False when current is older than the bound store. Binding only moves to newer generations: one
+    // thread wins the swap and drops the old store's entries, the others go straight on
+    private boolean bind(CarStore current) {
+
+        while (true) {
+
+            CarStore bound = store.get();
+
+            if (bound == current) { return true; }
+
+            if (bound != null && bound.generation() > current.generation()) { return false; }
+
+            if (store.compareAndSet(bound, current)) {
+
+                if (removeIf(key -> key.store() != current) > 0) { invalidations.increment(); }
+
+                return true;
+            }
+        }
+    }
+
+    private int removeIf(Predicate<Key> condition) {
+
+        int removed = 0;
+
+        for (Map.Entry<Key, Entry> mapping : entries.entrySet()) {
+
+            if (condition.test(mapping.getKey()) && entries.remove(mapping.getKey(), mapping.getValue())) {
+
+                retire(mapping.getValue());
+                removed++;
+            }
+        }
+
+        return removed;
+    }
+
+    private void retire(Entry entry) {
+
+        synchronized (entry) {
+
+            entry.removed = true;
+            bytes.addAndGet(-entry.bytes);
+        }
+    }
+
+    // Once over either budget, least recently used entries go first until both are back under seven
+    // eighths of it, so the sort by age is paid once per many inserts. A thread that finds another
+    // already evicting leaves it to that one rather than waiting
+    private void evict() {
+
+        while ((entries.size() > maxEntries || bytes.get() > maxBytes) && evictionLock.tryLock()) {
+
+            try {
+
+                long entryTarget = maxEntries - maxEntries / 8;
+                long byteTarget = maxBytes - maxBytes / 8;
+
+                List<Candidate> byAge = new ArrayList<>(entries.size());
+
+                entries.forEach((key, entry) -> byAge.add(new Candidate(key, entry, entry.lastUsed)));
+                byAge.sort(Comparator.comparingLong(Candidate::lastUsed));
+
+                for (Candidate candidate : byAge) {
+
+                    if (entries.size() <= entryTarget && bytes.get() <= byteTarget) { break; }
+
+                    if (entries.remove(candidate.key(), candidate.entry())) {
+
+                        retire(candidate.entry());
+                        evictions.increment();
+                    }
+                }
+
+            } finally {
+
+                evictionLock.unlock();
+            }
+        }
+    }
+}
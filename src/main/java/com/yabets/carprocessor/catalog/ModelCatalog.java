@@ -0,0 +1,232 @@
+package com.yabets.carprocessor.catalog;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+// Immutable model -> brand table behind a perfect hash: every lookup is two hashes and one compare, however large the catalog
+public class ModelCatalog {
+
+    private static final Logger LOGGER = Logger.getLogger(ModelCatalog.class.getName());
+
+    public static final String UNKNOWN_BRAND = "Unknown";
+
+    // Average keys per bucket; larger buckets build slower but need fewer seeds
+    private static final int KEYS_PER_BUCKET = 4;
+    private static final int MAX_SEED = 1 << 24;
+
+    // What the loader does with a car whose model is not in the catalog
+    public enum UnknownModelPolicy {
+        SKIP,    // Drop the car and count it
+        UNKNOWN, // Keep the car under UNKNOWN_BRAND
+        FAIL     // Abort the load
+    }
+
+    private final int[] seeds;
+    private final String[] models;
+    private final String[] brands;
+    private final int size;
+    private final long checksum;
+
+    private ModelCatalog(Map<String, String> entries, long checksum) {
+
+        this.size = entries.size();
+        this.checksum = checksum;
+
+        int slots = Math.max(1, size + size / 4);
+
+        seeds = new int[Math.max(1, size / KEYS_PER_BUCKET)];
+        models = new String[slots];
+        brands = new String[slots];
+
+        build(entries);
+    }
+
+    // The models.csv shipped on the classpath
+    public static ModelCatalog bundled() throws IOException, CsvValidationException {
+
+        InputStream csvStream = ModelCatalog.class.getClassLoader().getResourceAsStream("models.csv");
+
+        if (csvStream == null) {
+
+            throw new IllegalArgumentException("Resource not found: models.csv");
+        }
+
+        return parse(csvStream);
+    }
+
+    // CSV with a Model,Brand header; invalid and duplicate rows are skipped with a warning
+    public static ModelCatalog parse(InputStream csvStream) throws IOException, CsvValidationException {
+
+        Map<String, String> entries = new LinkedHashMap<>();
+        Map<String, String> brandNames = new HashMap<>();
+
+        CheckedInputStream checkedStream = new CheckedInputStream(csvStream, new CRC32());
+
+        try (CSVReader reader = new CSVReader(new InputStreamReader(checkedStream, StandardCharsets.UTF_8))) {
+
+            String[] header = reader.readNext();
+            if (header == null || header.length < 2 || !header[0].trim().equalsIgnoreCase("Model") || !header[1].trim().equalsIgnoreCase("Brand")) {
+
+                LOGGER.severe("Invalid catalog header: Expected 'Model,Brand', found: " + (header != null ? String.join(",", header) : "null"));
+                throw new IOException("Invalid catalog header: Expected 'Model,Brand'");
+            }
+
+            String[] fields;
+            int lineNumber = 1;
+
+            while ((fields = reader.readNext()) != null) {
+
+                lineNumber++;
+
+                if (fields.length < 2 || fields[0].trim().isEmpty() || fields[1].trim().isEmpty()) {
+
+                    LOGGER.warning("Skipping invalid catalog row at line " + lineNumber + ": " + String.join(",", fields));
+                    continue;
+                }
+
+                String model = fields[0].trim();
+                String brand = brandNames.computeIfAbsent(fields[1].trim(), name -> name); // One instance per brand
+
+                String previous = entries.putIfAbsent(model, brand);
+
+                if (previous != null) {
+
+                    LOGGER.warning("Skipping duplicate model at line " + lineNumber + ": " + model
+                            + (previous.equals(brand) ? " is already listed" : " is already mapped to " + previous));
+                }
+            }
+        }
+
+        if (entries.isEmpty()) {
+
+            LOGGER.severe("No valid models parsed from catalog");
+            throw new IOException("No valid models parsed from catalog");
+        }
+
+        return new ModelCatalog(entries, checkedStream.getChecksum().getValue());
+    }
+
+    // Null when the model is not in the catalog
+    public String brandOf(String model) {
+
+        if (model == null) { return null; }
+
+        int seed = seeds[Math.floorMod(hash(model, 0), seeds.length)];
+        int slot = Math.floorMod(hash(model, seed), models.length);
+
+        return model.equals(models[slot]) ? brands[slot] : null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // CRC of the catalog file, so a snapshot built with another catalog is detected as stale
+    public long checksum() {
+        return checksum;
+    }
+
+    // Hash-and-displace: buckets are placed largest first, each trying seeds until all its keys land on free slots
+    private void build(Map<String, String> entries) {
+
+        List<List<String>> buckets = new ArrayList<>(seeds.length);
+
+        for (int i = 0; i < seeds.length; i++) {
+
+            buckets.add(new ArrayList<>());
+        }
+
+        for (String model : entries.keySet()) {
+
+            buckets.get(Math.floorMod(hash(model, 0), seeds.length)).add(model);
+        }
+
+        Integer[] order = new Integer[seeds.length];
+
+        for (int i = 0; i < order.length; i++) { order[i] = i; }
+
+        Arrays.sort(order, (a, b) -> Integer.compare(buckets.get(b).size(), buckets.get(a).size()));
+
+        int[] candidate = new int[0];
+
+        for (int bucket : order) {
+
+            List<String> keys = buckets.get(bucket);
+
+            if (keys.isEmpty()) { break; }
+
+            if (candidate.length < keys.size()) { candidate = new int[keys.size()]; }
+
+            seeds[bucket] = findSeed(keys, candidate);
+
+            for (int i = 0; i < keys.size(); i++) {
+
+                models[candidate[i]] = keys.get(i);
+                brands[candidate[i]] = entries.get(keys.get(i));
+            }
+        }
+    }
+
+    // Fills slots with the positions of keys under the returned seed
+    private int findSeed(List<String> keys, int[] slots) {
+
+        for (int seed = 1; seed < MAX_SEED; seed++) {
+
+            if (fits(keys, seed, slots)) { return seed; }
+        }
+
+        throw new IllegalStateException("Could not place " + keys.size() + " catalog models in " + models.length + " slots");
+    }
+
+    private boolean fits(List<String> keys, int seed, int[] slots) {
+
+        for (int i = 0; i < keys.size(); i++) {
+
+            int slot = Math.floorMod(hash(keys.get(i), seed), models.length);
+
+            if (models[slot] != null) { return false; }
+
+            for (int j = 0; j < i; j++) {
+
+                if (slots[j] == slot) { return false; }
+            }
+
+            slots[i] = slot;
+        }
+
+        return true;
+    }
+
+    // Seeded FNV-1a over the chars with a murmur finalizer; unlike String.hashCode, equal-hash strings split under other seeds
+    private static int hash(String key, int seed) {
+
+        int h = 0x811C9DC5 ^ (seed * 0x9E3779B9);
+
+        for (int i = 0; i < key.length(); i++) {
+
+            h = (h ^ key.charAt(i)) * 0x01000193;
+        }
+
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+
+        return h;
+    }
+}
@@ -1,9 +1,13 @@
 package com.yabets.carprocessor.cli;
 
-import com.yabets.carprocessor.model.BrandInfo;
-import com.yabets.carprocessor.model.Car;
-import com.yabets.carprocessor.parser.BrandCsvParser;
-import com.yabets.carprocessor.parser.CarXmlParser;
+import com.yabets.carprocessor.catalog.ModelCatalog;
+import com.yabets.carprocessor.catalog.ModelCatalog.UnknownModelPolicy;
+import com.yabets.carprocessor.currency.ExchangeRates;
+import com.yabets.carprocessor.metrics.Metrics;
+import com.yabets.carprocessor.parser.CarLoader;
+import com.yabets.carprocessor.store.CarSnapshot;
+import com.yabets.carprocessor.store.CarStore;
+import com.yabets.carprocessor.store.StoreDiff;
 import com.yabets.carprocessor.util.Utils;
 import org.jline.reader.LineReader;
 import org.jline.reader.LineReaderBuilder;
@@ -11,111 +15,380 @@ import org.jline.terminal.Terminal;
 import org.jline.terminal.TerminalBuilder;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.time.LocalDate;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 public class CarProcessorCli {
 
     private static final Logger LOGGER = Logger.getLogger(CarProcessorCli.class.getName());
 
-    private final CarXmlParser xmlParser = new CarXmlParser();
-    private final BrandCsvParser csvParser = new BrandCsvParser();
+    public static final String DEFAULT_CAR_FILES = "*.xml";
 
-    private List<Car> cars = new ArrayList<>();
-    private List<Car> initialCars = new ArrayList<>(); // Store initial car list
-    private final LineReader reader;
-    private final boolean useJLine;
+    private static final int BATCH_BUFFER_SIZE = 1 << 20;
+
+    private final CarLoader loader;
+
+    // Swapped whole on reload; each command reads it once, so it always sees one consistent dataset
+    private final AtomicReference<CarStore> store = new AtomicReference<>(new CarStore(List.of()));
+    private volatile long sourceFingerprint;
+    private final Path dataDir;
+    private final PathMatcher carFiles;
+    private final URL csvUrl;
+    private final Path snapshotFile;
+
+    // Null when the rates come from the classpath; snapshots hold the raw prices and are renormalized under other rates, so rates never make one stale
+    private final Path ratesFile;
+    private volatile ExchangeRates rates = ExchangeRates.NONE;
 
     public CarProcessorCli() throws Exception {
+        this(new CarLoader(Runtime.getRuntime().availableProcessors(), ModelCatalog.bundled(), UnknownModelPolicy.UNKNOWN),
+                null, DEFAULT_CAR_FILES, null, null, false);
+    }
 
-        LineReader tempReader = null;
-        boolean jlineSuccess = false;
+    // Without a data directory the bundled resources are used; otherwise every file in it matching
+    // carGlob is a car shard. With a snapshot file, startup maps the snapshot instead of parsing when
+    // it is still current. Rates come from ratesFile, else rates.csv in the data directory, else the
+    // bundled one; watch reloads the directory, and a rates file in it, on change
+    public CarProcessorCli(CarLoader loader, Path dataDir, String carGlob, Path snapshotFile, Path ratesFile, boolean watch) throws Exception {
 
+        this.dataDir = dataDir;
+        this.carFiles = FileSystems.getDefault().getPathMatcher("glob:" + carGlob);
+        this.snapshotFile = snapshotFile;
+        this.ratesFile = ratesFile != null || dataDir == null || !Files.isRegularFile(dataDir.resolve("rates.csv"))
+                ? ratesFile : dataDir.resolve("rates.csv");
+        this.loader = loader;
+
+        if (watch && dataDir == null) {
+
+            throw new IllegalArgumentException("Watching requires a data directory");
+        }
+
+        // Automatically load files from the data directory or from resources
         try {
 
-            Terminal terminal = TerminalBuilder.builder()
-                    .system(System.console() != null)
-                    .dumb(true)
-                    .build();
+            csvUrl = locate("brands.csv");
+            rates = loadRates();
 
-            tempReader = LineReaderBuilder.builder()
-                    .terminal(terminal)
-                    .build();
+            List<URL> carSources = carSources();
+            sourceFingerprint = fingerprint(carSources);
 
-            jlineSuccess = true;
+            if (snapshotFile == null || !loadSnapshot()) {
 
-            LOGGER.fine("Initialized JLine terminal successfully");
+                long start = System.nanoTime();
+
+                store.set(loadFiles(carSources));
+                Metrics.loads().recordFileLoad(System.nanoTime() - start, store.get().size());
+
+                saveSnapshot();
+            }
 
         } catch (Exception e) {
 
-            LOGGER.warning("Failed to initialize JLine terminal, falling back to Scanner: " + e.getMessage());
+            LOGGER.severe("Failed to load resources: " + e.getMessage());
+
+            throw new Exception("Failed to load cars.xml or brands.csv: " + e.getMessage());
+        }
+
+        if (watch) {
+
+            new FileWatcher(dataDir, name -> name.toString().equals("brands.csv") || carFiles.matches(name) || isRatesFile(name), this::reload).start();
+        }
+    }
+
+    private URL locate(String name) throws IOException {
+
+        if (dataDir == null) {
+
+            URL url = getClass().getClassLoader().getResource(name);
+
+            if (url == null) {
+
+                throw new IllegalArgumentException("Resource not found: " + name);
+            }
+
+            return url;
+        }
+
+        Path file = dataDir.resolve(name);
+
+        if (!Files.isRegularFile(file)) {
+
+            throw new IllegalArgumentException("File not found: " + file);
+        }
+
+        return file.toUri().toURL();
+    }
+
+    // Listed again on every reload so added and removed shards are picked up; sorted for a stable row order
+    private List<URL> carSources() throws IOException {
+
+        if (dataDir == null) {
+
+            return List.of(locate("cars.xml"));
+        }
+
+        List<Path> files = new ArrayList<>();
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dataDir)) {
+
+            for (Path entry : entries) {
+
+                if (Files.isRegularFile(entry) && carFiles.matches(entry.getFileName())) {
+
+                    files.add(entry);
+                }
+            }
+        }
+
+        files.sort(Comparator.comparing(path -> path.getFileName().toString()));
+
+        List<URL> urls = new ArrayList<>(files.size());
+
+        for (Path file : files) {
+
+            urls.add(file.toUri().toURL());
         }
 
-        reader = tempReader;
-        useJLine = jlineSuccess;
+        return urls;
+    }
+
+    private long fingerprint(List<URL> carSources) throws IOException {
+
+        List<URL> sources = new ArrayList<>(carSources);
+        sources.add(csvUrl);
+
+        return CarSnapshot.fingerprint(sources, loader.fingerprint());
+    }
+
+    private CarStore loadFiles(List<URL> carSources) throws Exception {
+
+        CarLoader.Result result = loader.load(carSources, csvUrl);
+
+        return new CarStore(result.cars(), rates); // Columnar copy every command reads from
+    }
+
+    private ExchangeRates loadRates() throws Exception {
+
+        if (ratesFile == null) { return ExchangeRates.bundled(); }
+
+        try (InputStream csvStream = Files.newInputStream(ratesFile)) {
+
+            return ExchangeRates.parse(csvStream);
+        }
+    }
+
+    private boolean isRatesFile(Path name) {
+        return ratesFile != null && ratesFile.toAbsolutePath().getParent().equals(dataDir.toAbsolutePath()) && name.equals(ratesFile.getFileName());
+    }
+
+    // Recomputes the normalized prices of the current cars; false when the rates did not change
+    private synchronized boolean reloadRates() throws Exception {
+
+        ExchangeRates loaded = loadRates();
+
+        if (loaded.equals(rates)) { return false; }
+
+        long start = System.nanoTime();
+
+        rates = loaded;
+        CarStore repriced = store.get().withRates(loaded);
+        store.set(repriced);
+
+        LOGGER.info(String.format("Loaded %d exchange rates, normalized the prices of %d cars in %.1f ms",
+                loaded.rates().size(), repriced.size(), (System.nanoTime() - start) / 1_000_000.0));
+
+        return true;
+    }
+
+    // Runs on the watcher thread with the changed file names, null when unknown; commands keep using the
+    // old store until the swap. Synchronized with reloadRates, so neither swap can replace the other's
+    // store with a stale one
+    private synchronized void reload(Set<Path> changed) {
+
+        long start = System.nanoTime();
 
-        // Automatically load files from resources
         try {
 
-            loadFilesFromResources();
+            // Car and brand edits leave the rates alone, so only a rates file event re-reads them
+            if (changed == null || changed.stream().anyMatch(this::isRatesFile)) { reloadRates(); }
 
         } catch (Exception e) {
 
-            LOGGER.severe("Failed to load resources: " + e.getMessage());
+            // Like a bad car file, a bad rates file keeps the current rates
+            LOGGER.warning("Rates reload failed, keeping current rates: " + e.getMessage());
+        }
 
-            throw new Exception("Failed to load cars.xml or brands.csv: " + e.getMessage());
+        try {
+
+            List<URL> carSources = carSources();
+            long fingerprint = fingerprint(carSources);
+
+            if (fingerprint == sourceFingerprint) { return; }
+
+            CarStore loaded = loadFiles(carSources);
+            CarStore previous = store.getAndSet(loaded);
+            sourceFingerprint = fingerprint;
+
+            long elapsed = System.nanoTime() - start;
+            Metrics.loads().recordReload(elapsed, loaded.size());
+
+            StoreDiff diff = StoreDiff.between(previous, loaded);
+
+            LOGGER.info(String.format("Reloaded %d cars in %.1f ms: %d added, %d removed, %d updated, %d unchanged",
+                    loaded.size(), elapsed / 1_000_000.0,
+                    diff.added(), diff.removed(), diff.updated(), diff.unchanged()));
+
+            saveSnapshot();
+
+        } catch (Exception e) {
+
+            // A half-written or invalid file keeps the current data; the next save triggers another try
+            Metrics.loads().recordReloadFailure();
+            LOGGER.warning("Reload failed, keeping current data: " + e.getMessage());
+        }
+    }
+
+    // False when the snapshot is missing, stale or damaged, so the caller falls back to parsing
+    private boolean loadSnapshot() {
+
+        if (!Files.exists(snapshotFile)) { return false; }
+
+        long start = System.nanoTime();
+
+        try {
+
+            store.set(CarSnapshot.load(snapshotFile, sourceFingerprint).withRates(rates));
+
+            long elapsed = System.nanoTime() - start;
+            Metrics.loads().recordSnapshotLoad(elapsed, store.get().size());
+
+            LOGGER.info(String.format("Loaded %d cars from snapshot %s in %.1f ms",
+                    store.get().size(), snapshotFile, elapsed / 1_000_000.0));
+
+            return true;
+
+        } catch (IOException e) {
+
+            LOGGER.warning("Ignoring snapshot " + snapshotFile + ", reloading from XML/CSV: " + e.getMessage());
+
+            return false;
         }
     }
 
-    private void loadFilesFromResources() throws Exception {
+    // A failed refresh only costs the next startup a full parse
+    private void saveSnapshot() {
 
-        // Load cars.xml from classpath
-        InputStream xmlStream = getClass().getClassLoader().getResourceAsStream("cars.xml");
+        if (snapshotFile == null) { return; }
 
-        if (xmlStream == null) {
+        try {
+
+            CarSnapshot.save(store.get(), sourceFingerprint, snapshotFile);
+
+        } catch (IOException e) {
 
-            throw new IllegalArgumentException("Resource not found: cars.xml");
+            LOGGER.warning("Failed to write snapshot " + snapshotFile + ": " + e.getMessage());
         }
+    }
 
-        List<Car> rawCars = xmlParser.parse(xmlStream);
+    // Snapshot and rates commands need the source fingerprint or swap the store, so they are handled here instead of in Utils
+    private void execute(String command) throws Exception {
 
-        // Load brands.csv from classpath
-        InputStream csvStream = getClass().getClassLoader().getResourceAsStream("brands.csv");
+        String[] parts = command.split("\\s+");
+        CarStore current = store.get();
 
-        if (csvStream == null) {
+        if (!parts[0].equalsIgnoreCase("snapshot") && !parts[0].equalsIgnoreCase("rates")) {
 
-            throw new IllegalArgumentException("Resource not found: brands.csv");
+            Utils.processCommand(command, current);
+            return;
         }
 
-        List<BrandInfo> brands = csvParser.parse(csvStream);
+        try {
 
-        Map<String, LocalDate> brandDateMap = brands.stream()
-                .collect(Collectors.toMap(BrandInfo::brand, BrandInfo::releaseDate));
+            if (parts[0].equalsIgnoreCase("rates")) {
 
-        cars = rawCars.stream()
-                .map(car -> {
+                ratesCommand(parts);
 
-                    String brand = Utils.getBrandFromModel(car.model());
+            } else {
 
-                    return new Car(car.type(), car.model(), car.prices(), brand, brandDateMap.getOrDefault(brand, null));
+                saveSnapshotCommand(parts, current);
+            }
 
-                }).collect(Collectors.toList());
+        } finally {
 
-        initialCars = new ArrayList<>(cars); // Store copy of initial list
+            Utils.endCommand();
+        }
     }
 
+    private void saveSnapshotCommand(String[] parts, CarStore current) throws IOException {
+
+        if (parts.length != 3 || !parts[1].equalsIgnoreCase("save")) {
+
+            throw new IllegalArgumentException("Usage: snapshot save <file>");
+        }
+
+        Path target = Path.of(parts[2]);
+        CarSnapshot.save(current, sourceFingerprint, target);
+
+        Utils.println("Saved " + current.size() + " cars to " + target + " (" + Files.size(target) + " bytes).");
+    }
+
+    // rates lists the current rates; rates reload reads the rates file again and reprices the cars
+    private void ratesCommand(String[] parts) throws Exception {
+
+        if (parts.length == 2 && parts[1].equalsIgnoreCase("reload")) {
+
+            Utils.println(reloadRates() ? "Rates reloaded; normalized prices recomputed." : "Rates unchanged.");
+
+        } else if (parts.length == 1) {
+
+            StringBuilder text = new StringBuilder("Exchange rates from " + (ratesFile != null ? ratesFile : "bundled rates.csv")
+                    + ", units per reference unit:");
+
+            rates.rates().forEach((currency, rate) -> text.append(System.lineSeparator()).append(String.format("  %-4s %14.6f", currency, rate)));
+
+            Utils.println(text.toString());
+
+        } else {
+
+            throw new IllegalArgumentException("Usage: rates [reload]");
+        }
+    }
+
+    // The dataset as of now; later reloads replace it but never change a store already handed out
+    public CarStore store() {
+        return store.get();
+    }
+
+    // The terminal is only set up here, so batch runs never touch it
     public void run() {
 
-        if (useJLine) {
+        LineReader reader = createLineReader();
+
+        if (reader != null) {
 
-            runJLineCli();
+            runJLineCli(reader);
 
         } else {
 
@@ -123,7 +396,112 @@ public class CarProcessorCli {
         }
     }
 
-    private void runJLineCli() {
+    // Runs every command without prompts, buffering all results into one stream flushed at the end;
+    // returns the number of failed commands, stopping at the first one when failFast is set
+    public int runBatch(BufferedReader commands, boolean failFast) throws IOException {
+
+        Writer output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), BATCH_BUFFER_SIZE);
+        Utils.setOutput(output, false);
+
+        Map<String, long[]> timings = new LinkedHashMap<>(); // verb -> count, total nanos, max nanos
+        long start = System.nanoTime();
+        int lineNumber = 0;
+        int executed = 0;
+        int failed = 0;
+
+        try {
+
+            String line;
+
+            while ((line = commands.readLine()) != null) {
+
+                lineNumber++;
+
+                String command = line.trim();
+
+                if (command.isEmpty() || command.startsWith("#")) { continue; }
+
+                if (command.equalsIgnoreCase("exit")) { break; }
+
+                long commandStart = System.nanoTime();
+                executed++;
+
+                try {
+
+                    execute(command);
+
+                } catch (Exception e) {
+
+                    failed++;
+
+                    System.err.println("Error at line " + lineNumber + ": " + e.getMessage());
+                    LOGGER.severe("Command error: " + e.getMessage());
+
+                    if (failFast) { break; }
+
+                } finally {
+
+                    long elapsed = System.nanoTime() - commandStart;
+                    long[] timing = timings.computeIfAbsent(command.split("\\s+")[0].toLowerCase(), verb -> new long[3]);
+
+                    timing[0]++;
+                    timing[1] += elapsed;
+                    timing[2] = Math.max(timing[2], elapsed);
+                }
+            }
+
+        } finally {
+
+            output.flush();
+            Utils.setOutput(Utils.stdoutWriter(), true);
+        }
+
+        printTimings(timings, executed, failed, System.nanoTime() - start);
+
+        return failed;
+    }
+
+    // Goes to stderr so stdout only carries command results
+    private static void printTimings(Map<String, long[]> timings, int executed, int failed, long elapsedNanos) {
+
+        System.err.printf("Batch: %d commands, %d failed, %.1f ms%n", executed, failed, elapsedNanos / 1_000_000.0);
+
+        for (Map.Entry<String, long[]> entry : timings.entrySet()) {
+
+            long[] timing = entry.getValue();
+
+            System.err.printf("  %-10s %6d runs %10.1f ms total %8.2f ms avg %8.2f ms max%n",
+                    entry.getKey(), timing[0], timing[1] / 1_000_000.0, timing[1] / 1_000_000.0 / timing[0], timing[2] / 1_000_000.0);
+        }
+    }
+
+    // Null when no terminal is available, so the Scanner loop takes over
+    private LineReader createLineReader() {
+
+        try {
+
+            Terminal terminal = TerminalBuilder.builder()
+                    .system(System.console() != null)
+                    .dumb(true)
+                    .build();
+
+            LineReader reader = LineReaderBuilder.builder()
+                    .terminal(terminal)
+                    .build();
+
+            LOGGER.fine("Initialized JLine terminal successfully");
+
+            return reader;
+
+        } catch (Exception e) {
+
+            LOGGER.warning("Failed to initialize JLine terminal, falling back to Scanner: " + e.getMessage());
+
+            return null;
+        }
+    }
+
+    private void runJLineCli(LineReader reader) {
 
         while (true) {
 
@@ -133,7 +511,7 @@ public class CarProcessorCli {
 
             try {
 
-                cars = Utils.processCommand(command, cars, initialCars);
+                execute(command);
 
             } catch (Exception e) {
 
@@ -157,7 +535,7 @@ public class CarProcessorCli {
 
             try {
 
-                cars = Utils.processCommand(command, cars, initialCars);
+                execute(command);
 
             } catch (Exception e) {
 
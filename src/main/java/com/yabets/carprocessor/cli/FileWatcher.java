@@ -0,0 +1,108 @@
+package com.yabets.carprocessor.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+// Runs a callback on a daemon thread whenever a matching file in the directory is created, modified or deleted.
+// The callback gets the names that changed, or null when the event queue overflowed and they are unknown
+public class FileWatcher implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(FileWatcher.class.getName());
+
+    // Editors and copy tools write in several steps; wait for the directory to go quiet
+    private static final long QUIET_PERIOD_MILLIS = 250;
+
+    private final Predicate<Path> fileNames;
+    private final Consumer<Set<Path>> onChange;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    public FileWatcher(Path directory, Predicate<Path> fileNames, Consumer<Set<Path>> onChange) throws IOException {
+
+        this.fileNames = fileNames;
+        this.onChange = onChange;
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+        thread = new Thread(this::watch, "file-watcher");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void watch() {
+
+        try {
+
+            while (true) {
+
+                Set<Path> changed = new HashSet<>();
+
+                drain(watchService.take(), changed);
+
+                if (changed.isEmpty()) { continue; }
+
+                // Collapse the burst of events from a single save into one callback
+                WatchKey next;
+
+                while ((next = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+
+                    drain(next, changed);
+                }
+
+                try {
+
+                    onChange.accept(changed.contains(null) ? null : changed);
+
+                } catch (RuntimeException e) {
+
+                    LOGGER.warning("File change handler failed: " + e.getMessage());
+                }
+            }
+
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+
+            LOGGER.fine("File watcher stopped");
+        }
+    }
+
+    // Adds the names of the matching files the key carried an event for, or null on overflow
+    private void drain(WatchKey key, Set<Path> changed) {
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+
+                changed.add(null);
+
+            } else if (fileNames.test((Path) event.context())) {
+
+                changed.add((Path) event.context());
+            }
+        }
+
+        key.reset();
+    }
+}
@@ -0,0 +1,145 @@
+package com.yabets.carprocessor.currency;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+// Immutable table of exchange rates: each currency's units per one unit of a shared reference currency,
+// so any pair converts through two lookups and stores never hold a rate matrix
+public final class ExchangeRates {
+
+    private static final Logger LOGGER = Logger.getLogger(ExchangeRates.class.getName());
+
+    // No rates: prices are only compared within their own currency
+    public static final ExchangeRates NONE = new ExchangeRates(Map.of());
+
+    private final Map<String, Double> rates;
+
+    private ExchangeRates(Map<String, Double> rates) {
+        this.rates = Collections.unmodifiableMap(new LinkedHashMap<>(rates));
+    }
+
+    // A table built elsewhere, e.g. read back from a snapshot; codes are uppercased and interned like parsed ones
+    public static ExchangeRates of(Map<String, Double> rates) {
+
+        Map<String, Double> codes = new LinkedHashMap<>();
+
+        rates.forEach((currency, rate) -> codes.put(currency.toUpperCase(Locale.ROOT).intern(), rate));
+
+        return codes.isEmpty() ? NONE : new ExchangeRates(codes);
+    }
+
+    // The rates.csv shipped on the classpath
+    public static ExchangeRates bundled() throws IOException, CsvValidationException {
+
+        InputStream csvStream = ExchangeRates.class.getClassLoader().getResourceAsStream("rates.csv");
+
+        if (csvStream == null) {
+
+            throw new IllegalArgumentException("Resource not found: rates.csv");
+        }
+
+        return parse(csvStream);
+    }
+
+    // CSV with a Currency,Rate header; rows with a missing code or a rate that is not a positive number are skipped with a warning
+    public static ExchangeRates parse(InputStream csvStream) throws IOException, CsvValidationException {
+
+        Map<String, Double> rates = new LinkedHashMap<>();
+
+        try (CSVReader reader = new CSVReader(new InputStreamReader(csvStream, StandardCharsets.UTF_8))) {
+
+            String[] header = reader.readNext();
+            if (header == null || header.length < 2 || !header[0].trim().equalsIgnoreCase("Currency") || !header[1].trim().equalsIgnoreCase("Rate")) {
+
+                LOGGER.severe("Invalid rates header: Expected 'Currency,Rate', found: " + (header != null ? String.join(",", header) : "null"));
+                throw new IOException("Invalid rates header: Expected 'Currency,Rate'");
+            }
+
+            String[] fields;
+            int lineNumber = 1;
+
+            while ((fields = reader.readNext()) != null) {
+
+                lineNumber++;
+
+                double rate = fields.length < 2 ? Double.NaN : parseRate(fields[1]);
+
+                if (fields[0].trim().isEmpty() || !(rate > 0) || Double.isInfinite(rate)) {
+
+                    LOGGER.warning("Skipping invalid rate at line " + lineNumber + ": " + String.join(",", fields));
+                    continue;
+                }
+
+                String currency = fields[0].trim().toUpperCase(Locale.ROOT).intern(); // Same instances as Car's codes
+
+                if (rates.putIfAbsent(currency, rate) != null) {
+
+                    LOGGER.warning("Skipping duplicate rate at line " + lineNumber + ": " + currency);
+                }
+            }
+        }
+
+        if (rates.isEmpty()) {
+
+            LOGGER.severe("No valid rates parsed");
+            throw new IOException("No valid rates parsed");
+        }
+
+        return new ExchangeRates(rates);
+    }
+
+    public boolean has(String currency) {
+        return rates.containsKey(currency);
+    }
+
+    // Units of the currency per reference unit; NaN when the currency has no rate
+    public double rate(String currency) {
+        return rates.getOrDefault(currency, Double.NaN);
+    }
+
+    // What one unit of from is worth in to; NaN unless both have a rate
+    public double factor(String from, String to) {
+        return rate(to) / rate(from);
+    }
+
+    public Map<String, Double> rates() {
+        return rates;
+    }
+
+    public boolean isEmpty() {
+        return rates.isEmpty();
+    }
+
+    // Equal tables normalize prices identically, so a rates file saved without changes swaps nothing
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ExchangeRates that && rates.equals(that.rates);
+    }
+
+    @Override
+    public int hashCode() {
+        return rates.hashCode();
+    }
+
+    private static double parseRate(String text) {
+
+        try {
+
+            return Double.parseDouble(text.trim());
+
+        } catch (NumberFormatException e) {
+
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.yabets.carprocessor.export;
+
+import com.yabets.carprocessor.model.Car;
+import com.yabets.carprocessor.store.CarStore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+// RFC 4180 CSV: type, model, brand, one column per currency in the store, then the ISO release date.
+// Missing prices and dates are empty, and fields holding a comma, quote or line break are quoted
+public class CsvEncoder implements RowEncoder {
+
+    // Whole prices below this are written straight from a long; others go through BigDecimal, never in E notation
+    private static final double MAX_WHOLE = 1e15;
+
+    private final String[] currencies;
+
+    public CsvEncoder(Collection<String> currencies) {
+        this.currencies = currencies.toArray(new String[0]);
+    }
+
+    @Override
+    public byte[] header() {
+
+        StringBuilder line = new StringBuilder("type,model,brand");
+
+        for (String currency : currencies) {
+
+            line.append(',');
+            appendField(line, currency);
+        }
+
+        return line.append(",releaseDate\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void encode(CarStore store, int[] rows, int from, int to, OutputStream out) throws IOException {
+
+        StringBuilder text = new StringBuilder((to - from) * 96);
+
+        for (int i = from; i < to; i++) {
+
+            Car car = store.car(rows[i]);
+
+            appendField(text, car.type());
+            text.append(',');
+            appendField(text, car.model());
+            text.append(',');
+            appendField(text, car.brand());
+
+            for (String currency : currencies) {
+
+                text.append(',');
+
+                double price = car.price(currency, Double.NaN);
+
+                if (Double.isNaN(price)) { continue; }
+
+                if (price == Math.rint(price) && Math.abs(price) < MAX_WHOLE) {
+
+                    text.append((long) price);
+
+                } else if (Double.isInfinite(price)) {
+
+                    text.append(price);
+
+                } else {
+
+                    // The shortest digits that round-trip, as Double.toString picks them, in plain notation
+                    text.append(BigDecimal.valueOf(price).stripTrailingZeros().toPlainString());
+                }
+            }
+
+            text.append(',');
+
+            if (car.releaseDate() != null) { text.append(car.releaseDate()); }
+
+            text.append('\n');
+        }
+
+        // Compact strings make this a plain copy for ASCII data
+        out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void appendField(StringBuilder text, String value) {
+
+        if (value == null) { return; }
+
+        boolean quote = false;
+
+        for (int i = 0; i < value.length() && !quote; i++) {
+
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!quote) {
+
+            text.append(value);
+            return;
+        }
+
+        text.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+
+            char c = value.charAt(i);
+
+            if (c == '"') { text.append('"'); }
+
+            text.append(c);
+        }
+
+        text.append('"');
+    }
+}
@@ -0,0 +1,58 @@
+package com.yabets.carprocessor.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.yabets.carprocessor.model.Car;
+import com.yabets.carprocessor.store.CarStore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// One compact JSON object per line, with the fields and values JsonFormatter writes, streamed without building a map per car
+public class NdjsonEncoder implements RowEncoder {
+
+    private static final byte[] NO_HEADER = new byte[0];
+
+    // Thread-safe once configured; each chunk gets its own generator
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    @Override
+    public byte[] header() {
+        return NO_HEADER;
+    }
+
+    @Override
+    public void encode(CarStore store, int[] rows, int from, int to, OutputStream out) throws IOException {
+
+        try (JsonGenerator generator = FACTORY.createGenerator(out)) {
+
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            // Lines are ended below, so root values need no separator of their own
+            generator.setRootValueSeparator(null);
+
+            for (int i = from; i < to; i++) {
+
+                Car car = store.car(rows[i]);
+
+                generator.writeStartObject();
+                generator.writeStringField("type", car.type());
+                generator.writeStringField("model", car.model());
+                generator.writeStringField("brand", car.brand());
+
+                generator.writeObjectFieldStart("prices");
+
+                for (int c = 0; c < car.currencyCount(); c++) {
+
+                    generator.writeNumberField(car.currency(c), car.price(c));
+                }
+
+                generator.writeEndObject();
+
+                generator.writeStringField("releaseDate", car.releaseDate() != null ? car.releaseDate().toString() : null);
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+    }
+}
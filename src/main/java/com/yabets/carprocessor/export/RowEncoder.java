@@ -0,0 +1,25 @@
+package com.yabets.carprocessor.export;
+
+import com.yabets.carprocessor.store.CarStore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Encodes a slice of a result as UTF-8 lines; encoders keep no per-call state, so chunks can be encoded on many threads at once
+public interface RowEncoder {
+
+    static RowEncoder forFormat(String format, CarStore store) {
+
+        return switch (format.toLowerCase()) {
+            case "ndjson" -> new NdjsonEncoder();
+            case "csv" -> new CsvEncoder(store.priceColumns().keySet());
+            default -> throw new IllegalArgumentException("Invalid export format: " + format);
+        };
+    }
+
+    // Written once at the start of the file; empty when the format has no header
+    byte[] header();
+
+    // rows[from..to) in order, one line each
+    void encode(CarStore store, int[] rows, int from, int to, OutputStream out) throws IOException;
+}
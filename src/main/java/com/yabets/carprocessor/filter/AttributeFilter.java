@@ -0,0 +1,81 @@
+package com.yabets.carprocessor.filter;
+
+import com.yabets.carprocessor.index.BitmapIndex;
+import com.yabets.carprocessor.store.CarStore;
+import com.yabets.carprocessor.store.RowExecutor;
+import com.yabets.carprocessor.store.StringDictionary;
+
+import java.util.Locale;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+// Case-insensitive match on one of the dictionary-encoded columns
+public class AttributeFilter implements CarFilter {
+
+    public enum Attribute { TYPE, MODEL, BRAND }
+
+    private final Attribute attribute;
+    private final String value;
+
+    public AttributeFilter(Attribute attribute, String value) {
+
+        this.attribute = attribute;
+        this.value = value;
+    }
+
+    @Override
+    public String describe() {
+        return attribute.name().toLowerCase(Locale.ROOT) + " " + value.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public IntPredicate bind(CarStore store) {
+
+        boolean[] matches = dictionary(store).matchIgnoreCase(value);
+
+        return switch (attribute) {
+            case TYPE -> row -> matches[store.typeCode(row)];
+            case MODEL -> row -> matches[store.modelCode(row)];
+            case BRAND -> row -> matches[store.brandCode(row)];
+        };
+    }
+
+    @Override
+    public IntFunction<RejectReason> rejectReasons(CarStore store) {
+
+        IntPredicate predicate = bind(store);
+        RejectReason reason = switch (attribute) {
+            case TYPE -> RejectReason.TYPE_MISMATCH;
+            case MODEL -> RejectReason.MODEL_MISMATCH;
+            case BRAND -> RejectReason.BRAND_MISMATCH;
+        };
+
+        return row -> predicate.test(row) ? null : reason;
+    }
+
+    @Override
+    public boolean indexed() {
+        return attribute != Attribute.MODEL;
+    }
+
+    @Override
+    public int[] filter(CarStore store, RowExecutor executor) {
+
+        BitmapIndex index = switch (attribute) {
+            case TYPE -> store.typeIndex();
+            case BRAND -> store.brandIndex();
+            case MODEL -> null;
+        };
+
+        return index != null ? index.getIgnoreCase(value).toArray() : CarFilter.super.filter(store, executor);
+    }
+
+    private StringDictionary dictionary(CarStore store) {
+
+        return switch (attribute) {
+            case TYPE -> store.types();
+            case MODEL -> store.models();
+            case BRAND -> store.brands();
+        };
+    }
+}
@@ -1,15 +1,18 @@
 package com.yabets.carprocessor.filter;
 
-import com.yabets.carprocessor.model.Car;
+import com.yabets.carprocessor.index.CompressedBitmap;
+import com.yabets.carprocessor.index.PriceIndex;
+import com.yabets.carprocessor.store.CarStore;
+import com.yabets.carprocessor.store.PriceColumn;
+import com.yabets.carprocessor.store.RowExecutor;
 
-import java.util.List;
-import java.util.logging.Logger;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
 
+// Prices are compared normalized to the currency, so a car priced only in other currencies matches on its converted price
 public class BrandPriceFilter implements CarFilter {
 
-    private static final Logger LOGGER = Logger.getLogger(BrandPriceFilter.class.getName());
-
     private final String brand;
     private final double minPrice;
     private final double maxPrice;
@@ -24,37 +27,78 @@ public class BrandPriceFilter implements CarFilter {
     }
 
     @Override
-    public List<Car> filter(List<Car> cars) {
+    public String describe() {
+
+        return brand != null
+                ? "brand-price " + brand.toLowerCase(Locale.ROOT) + " " + minPrice + " " + maxPrice + " " + currency
+                : "price " + currency + " " + minPrice + " " + maxPrice;
+    }
+
+    @Override
+    public IntPredicate bind(CarStore store) {
+
+        boolean[] brandMatches = brand != null ? store.brands().matchIgnoreCase(brand) : null;
+        PriceColumn prices = store.normalizedPrices(currency);
+
+        if (prices == null) { return row -> false; }
+
+        return row -> (brandMatches == null || brandMatches[store.brandCode(row)])
+                && prices.isPresent(row) && prices.value(row) >= minPrice && prices.value(row) <= maxPrice;
+    }
+
+    // Checked in the order bind() tests them, so each row gets the reason the predicate stopped at
+    @Override
+    public IntFunction<RejectReason> rejectReasons(CarStore store) {
+
+        boolean[] brandMatches = brand != null ? store.brands().matchIgnoreCase(brand) : null;
+        PriceColumn prices = store.normalizedPrices(currency);
+
+        return row -> {
 
-        LOGGER.info("Filtering cars: brand=" + (brand != null ? brand : "null") + ", currency=" + currency + ", minPrice=" + minPrice + ", maxPrice=" + maxPrice);
+            if (brandMatches != null && !brandMatches[store.brandCode(row)]) { return RejectReason.BRAND_MISMATCH; }
+            if (prices == null || !prices.isPresent(row)) { return RejectReason.MISSING_CURRENCY; }
+            if (prices.value(row) < minPrice || prices.value(row) > maxPrice) { return RejectReason.PRICE_OUT_OF_RANGE; }
+
+            return null;
+        };
+    }
 
-        List<Car> filtered = cars.stream()
-                .filter(car -> {
+    @Override
+    public int cost() {
+        return 2;
+    }
 
-                    boolean brandMatch = brand == null || car.brand().equalsIgnoreCase(brand);
+    @Override
+    public boolean indexed() {
+        return true;
+    }
 
-                    if (!brandMatch) {
+    @Override
+    public int[] filter(CarStore store, RowExecutor executor) {
 
-                        LOGGER.fine("Excluding car: model=" + car.model() + ", brand=" + car.brand() + " (brand mismatch)");
+        PriceIndex priceIndex = store.normalizedPriceIndex(currency);
 
-                        return false;
-                    }
+        if (priceIndex == null) {
 
-                    Double price = car.getPriceMap().get(currency);
+            return new int[0]; // No car has a price in this currency, even after conversion
+        }
 
-                    boolean priceMatch = price != null && price >= minPrice && price <= maxPrice;
+        if (brand == null) {
 
-                    if (!priceMatch) {
+            return priceIndex.rowsInRange(minPrice, maxPrice);
+        }
 
-                        LOGGER.fine("Excluding car: model=" + car.model() + ", brand=" + car.brand() + ", price=" + price + " " + currency + " (price mismatch or missing)");
-                    }
+        CompressedBitmap brandRows = store.brandIndex().getIgnoreCase(brand);
 
-                    return priceMatch;
+        // Drive from whichever side is smaller: the brand's rows or the price slice
+        if (brandRows.cardinality() < priceIndex.countInRange(minPrice, maxPrice)) {
 
-                }).collect(Collectors.toList());
+            PriceColumn prices = store.normalizedPrices(currency);
 
-        LOGGER.info("Filtered to " + filtered.size() + " cars");
+            return executor.filter(brandRows.toArray(),
+                    row -> prices.isPresent(row) && prices.value(row) >= minPrice && prices.value(row) <= maxPrice);
+        }
 
-        return filtered;
+        return executor.filter(priceIndex.rowsInRange(minPrice, maxPrice), brandRows::contains);
     }
 }
@@ -1,16 +1,17 @@
 package com.yabets.carprocessor.filter;
 
-import com.yabets.carprocessor.model.Car;
+import com.yabets.carprocessor.index.CompressedBitmap;
+import com.yabets.carprocessor.index.ReleaseDateIndex;
+import com.yabets.carprocessor.store.CarStore;
+import com.yabets.carprocessor.store.RowExecutor;
 
 import java.time.LocalDate;
-import java.util.List;
-import java.util.logging.Logger;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
 
 public class BrandReleaseDateFilter implements CarFilter {
 
-    private static final Logger LOGGER = Logger.getLogger(BrandReleaseDateFilter.class.getName());
-
     private final String brand;
     private final LocalDate startDate;
     private final LocalDate endDate;
@@ -23,36 +24,79 @@ public class BrandReleaseDateFilter implements CarFilter {
     }
 
     @Override
-    public List<Car> filter(List<Car> cars) {
+    public String describe() {
+
+        return brand != null
+                ? "brand-date " + brand.toLowerCase(Locale.ROOT) + " " + startDate + " " + endDate
+                : "date " + startDate + " " + endDate;
+    }
+
+    @Override
+    public IntPredicate bind(CarStore store) {
+
+        boolean[] brandMatches = brand != null ? store.brands().matchIgnoreCase(brand) : null;
+        int startDay = CarStore.toDay(startDate);
+        int endDay = CarStore.toDay(endDate);
+
+        return row -> {
+
+            int releaseDay = store.releaseDay(row);
+
+            return (brandMatches == null || brandMatches[store.brandCode(row)])
+                    && releaseDay != CarStore.NO_DATE && releaseDay >= startDay && releaseDay <= endDay;
+        };
+    }
+
+    // Checked in the order bind() tests them, so each row gets the reason the predicate stopped at
+    @Override
+    public IntFunction<RejectReason> rejectReasons(CarStore store) {
+
+        boolean[] brandMatches = brand != null ? store.brands().matchIgnoreCase(brand) : null;
+        int startDay = CarStore.toDay(startDate);
+        int endDay = CarStore.toDay(endDate);
+
+        return row -> {
+
+            int releaseDay = store.releaseDay(row);
 
-        LOGGER.info("Filtering cars: brand=" + (brand != null ? brand : "null") + ", startDate=" + startDate + ", endDate=" + endDate);
+            if (brandMatches != null && !brandMatches[store.brandCode(row)]) { return RejectReason.BRAND_MISMATCH; }
+            if (releaseDay == CarStore.NO_DATE) { return RejectReason.MISSING_DATE; }
+            if (releaseDay < startDay || releaseDay > endDay) { return RejectReason.DATE_OUT_OF_RANGE; }
 
-        List<Car> filtered = cars.stream()
-                .filter(car -> {
+            return null;
+        };
+    }
 
-                    boolean brandMatch = brand == null || car.brand().equalsIgnoreCase(brand);
-                    if (!brandMatch) {
+    @Override
+    public boolean indexed() {
+        return true;
+    }
+
+    @Override
+    public int[] filter(CarStore store, RowExecutor executor) {
 
-                        LOGGER.fine("Excluding car: model=" + car.model() + ", brand=" + car.brand() + " (brand mismatch)");
+        ReleaseDateIndex dateIndex = store.releaseDateIndex();
+        int startDay = CarStore.toDay(startDate);
+        int endDay = CarStore.toDay(endDate);
 
-                        return false;
-                    }
+        if (brand == null) {
 
-                    boolean dateMatch = car.releaseDate() != null &&
-                            !car.releaseDate().isBefore(startDate) &&
-                            !car.releaseDate().isAfter(endDate);
+            return dateIndex.rowsInRange(startDay, endDay);
+        }
 
-                    if (!dateMatch) {
+        CompressedBitmap brandRows = store.brandIndex().getIgnoreCase(brand);
 
-                        LOGGER.fine("Excluding car: model=" + car.model() + ", brand=" + car.brand() + ", releaseDate=" + car.releaseDate() + " (date mismatch)");
-                    }
+        // Drive from whichever side is smaller: the brand's rows or the date buckets in range
+        if (brandRows.cardinality() < dateIndex.countInRange(startDay, endDay)) {
 
-                    return dateMatch;
+            return executor.filter(brandRows.toArray(), row -> {
 
-                }).collect(Collectors.toList());
+                int releaseDay = store.releaseDay(row);
 
-        LOGGER.info("Filtered to " + filtered.size() + " cars");
+                return releaseDay != CarStore.NO_DATE && releaseDay >= startDay && releaseDay <= endDay;
+            });
+        }
 
-        return filtered;
+        return executor.filter(dateIndex.rowsInRange(startDay, endDay), brandRows::contains);
     }
 }
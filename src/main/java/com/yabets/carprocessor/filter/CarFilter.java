@@ -1,9 +1,41 @@
 package com.yabets.carprocessor.filter;
 
-import com.yabets.carprocessor.model.Car;
+import com.yabets.carprocessor.store.CarStore;
+import com.yabets.carprocessor.store.RowExecutor;
 
-import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
 
+// A predicate stage of a CarQuery; filter() runs it on its own
 public interface CarFilter {
-    List<Car> filter(List<Car> cars);
-}
\ No newline at end of file
+
+    // Resolves everything the filter needs from the store once; the result is tested per row
+    IntPredicate bind(CarStore store);
+
+    // Why bind()'s predicate fails for a row, or null when it passes; only explain pays for this
+    default IntFunction<RejectReason> rejectReasons(CarStore store) {
+
+        IntPredicate predicate = bind(store);
+
+        return row -> predicate.test(row) ? null : RejectReason.NO_MATCH;
+    }
+
+    // Canonical form, equal for equivalent filters whatever the input casing or number format
+    String describe();
+
+    // Relative cost of one row test, so a query can run cheap predicates first
+    default int cost() { return 1; }
+
+    // Whether filter() answers from an index rather than scanning every row
+    default boolean indexed() { return false; }
+
+    // Returns the matching row ids in ascending row order
+    default int[] filter(CarStore store) {
+        return filter(store, RowExecutor.SEQUENTIAL);
+    }
+
+    // Same rows, with the scan split across the executor's pool on large stores
+    default int[] filter(CarStore store, RowExecutor executor) {
+        return executor.filter(store.size(), bind(store));
+    }
+}
@@ -0,0 +1,24 @@
+package com.yabets.carprocessor.filter;
+
+// Why a filter rejected a row, as counted by the explain command
+public enum RejectReason {
+
+    BRAND_MISMATCH("brand mismatch"),
+    TYPE_MISMATCH("type mismatch"),
+    MODEL_MISMATCH("model mismatch"),
+    MISSING_CURRENCY("missing currency"),
+    PRICE_OUT_OF_RANGE("price out of range"),
+    MISSING_DATE("missing release date"),
+    DATE_OUT_OF_RANGE("date out of range"),
+    NO_MATCH("no match");
+
+    private final String label;
+
+    RejectReason(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
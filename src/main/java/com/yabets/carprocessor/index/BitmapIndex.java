@@ -0,0 +1,78 @@
+package com.yabets.carprocessor.index;
+
+import com.yabets.carprocessor.store.IntColumn;
+import com.yabets.carprocessor.store.StringDictionary;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// One compressed bitmap per dictionary code of a column, plus merged case-insensitive lookups
+public class BitmapIndex {
+
+    private final CompressedBitmap[] byCode;
+    private final Map<String, CompressedBitmap> byKeyIgnoreCase = new HashMap<>();
+
+    public BitmapIndex(StringDictionary dictionary, IntColumn codes) {
+
+        // Rows bucketed by code first, ascending within each bucket, so only one bitmap is being built at a time
+        int[] starts = new int[dictionary.size() + 1];
+
+        for (int row = 0; row < codes.length(); row++) {
+
+            starts[codes.get(row) + 1]++;
+        }
+
+        for (int code = 0; code < dictionary.size(); code++) {
+
+            starts[code + 1] += starts[code];
+        }
+
+        int[] rows = new int[codes.length()];
+        int[] next = Arrays.copyOf(starts, dictionary.size());
+
+        for (int row = 0; row < codes.length(); row++) {
+
+            rows[next[codes.get(row)]++] = row;
+        }
+
+        byCode = new CompressedBitmap[dictionary.size()];
+
+        for (int code = 0; code < byCode.length; code++) {
+
+            byCode[code] = CompressedBitmap.of(rows, starts[code], starts[code + 1]);
+
+            String value = dictionary.decode(code);
+
+            if (value != null) {
+
+                byKeyIgnoreCase.merge(key(value), byCode[code], CompressedBitmap::or);
+            }
+        }
+    }
+
+    public CompressedBitmap forCode(int code) {
+        return byCode[code];
+    }
+
+    public CompressedBitmap getIgnoreCase(String value) {
+        return byKeyIgnoreCase.getOrDefault(key(value), CompressedBitmap.EMPTY);
+    }
+
+    public long sizeInBytes() {
+
+        long bytes = 0;
+
+        for (CompressedBitmap bitmap : byCode) {
+
+            bytes += bitmap.sizeInBytes();
+        }
+
+        return bytes;
+    }
+
+    private static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
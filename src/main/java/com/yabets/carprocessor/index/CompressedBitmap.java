@@ -0,0 +1,258 @@
+package com.yabets.carprocessor.index;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Roaring-style row set: rows are split into 65536-row chunks, each stored as a sorted
+// char array while sparse and as a 1024-word bitset once it passes 4096 rows
+public class CompressedBitmap {
+
+    public static final CompressedBitmap EMPTY = new CompressedBitmap(new char[0], new Container[0], 0);
+
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int ARRAY_CONTAINER_MAX = 4096;
+
+    private final char[] keys;
+    private final Container[] containers;
+    private final int cardinality;
+
+    private CompressedBitmap(char[] keys, Container[] containers, int cardinality) {
+
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinality = cardinality;
+    }
+
+    public static CompressedBitmap of(int[] sortedRows) {
+        return of(sortedRows, 0, sortedRows.length);
+    }
+
+    // The rows of sortedRows[from, to)
+    public static CompressedBitmap of(int[] sortedRows, int from, int to) {
+
+        Builder builder = new Builder();
+
+        for (int i = from; i < to; i++) {
+
+            builder.add(sortedRows[i]);
+        }
+
+        return builder.build();
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int row) {
+
+        int index = Arrays.binarySearch(keys, (char) (row >>> 16));
+
+        return index >= 0 && containers[index].contains((char) row);
+    }
+
+    // Rows in ascending order
+    public int[] toArray() {
+
+        int[] rows = new int[cardinality];
+        int position = 0;
+
+        for (int i = 0; i < keys.length; i++) {
+
+            position = containers[i].fill(rows, position, keys[i] << 16);
+        }
+
+        return rows;
+    }
+
+    public IntStream stream() {
+        return IntStream.of(toArray());
+    }
+
+    public CompressedBitmap or(CompressedBitmap other) {
+
+        int[] left = toArray();
+        int[] right = other.toArray();
+        Builder builder = new Builder();
+        int i = 0;
+        int j = 0;
+
+        while (i < left.length || j < right.length) {
+
+            if (j >= right.length || (i < left.length && left[i] < right[j])) {
+
+                builder.add(left[i++]);
+
+            } else if (i >= left.length || right[j] < left[i]) {
+
+                builder.add(right[j++]);
+
+            } else {
+
+                builder.add(left[i++]);
+                j++;
+            }
+        }
+
+        return builder.build();
+    }
+
+    public long sizeInBytes() {
+
+        long bytes = keys.length * 2L;
+
+        for (Container container : containers) {
+
+            bytes += container.sizeInBytes();
+        }
+
+        return bytes;
+    }
+
+    // Accepts rows in strictly ascending order
+    public static class Builder {
+
+        // Grows with the rows of the current chunk, so a builder for a few rows stays small
+        private char[] chunk = new char[16];
+        private int chunkSize;
+        private int currentKey = -1;
+        private int lastRow = -1;
+
+        private char[] keys = new char[4];
+        private Container[] containers = new Container[4];
+        private int containerCount;
+        private int cardinality;
+
+        public Builder add(int row) {
+
+            if (row <= lastRow) {
+
+                throw new IllegalArgumentException("Rows must be added in ascending order: " + row + " after " + lastRow);
+            }
+
+            int key = row >>> 16;
+
+            if (key != currentKey) {
+
+                flush();
+                currentKey = key;
+            }
+
+            if (chunkSize == chunk.length) {
+
+                chunk = Arrays.copyOf(chunk, Math.min(chunkSize * 2, CHUNK_SIZE));
+            }
+
+            chunk[chunkSize++] = (char) row;
+            lastRow = row;
+            cardinality++;
+
+            return this;
+        }
+
+        public CompressedBitmap build() {
+
+            flush();
+
+            return new CompressedBitmap(Arrays.copyOf(keys, containerCount), Arrays.copyOf(containers, containerCount), cardinality);
+        }
+
+        private void flush() {
+
+            if (chunkSize == 0) { return; }
+
+            if (containerCount == keys.length) {
+
+                keys = Arrays.copyOf(keys, containerCount * 2);
+                containers = Arrays.copyOf(containers, containerCount * 2);
+            }
+
+            keys[containerCount] = (char) currentKey;
+            containers[containerCount] = chunkSize > ARRAY_CONTAINER_MAX
+                    ? BitsetContainer.of(chunk, chunkSize)
+                    : new ArrayContainer(Arrays.copyOf(chunk, chunkSize));
+
+            containerCount++;
+            chunkSize = 0;
+        }
+    }
+
+    private interface Container {
+
+        boolean contains(char low);
+
+        int fill(int[] rows, int position, int high);
+
+        long sizeInBytes();
+    }
+
+    private record ArrayContainer(char[] values) implements Container {
+
+        @Override
+        public boolean contains(char low) {
+            return Arrays.binarySearch(values, low) >= 0;
+        }
+
+        @Override
+        public int fill(int[] rows, int position, int high) {
+
+            for (char value : values) {
+
+                rows[position++] = high | value;
+            }
+
+            return position;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return values.length * 2L;
+        }
+    }
+
+    private record BitsetContainer(long[] words) implements Container {
+
+        static BitsetContainer of(char[] values, int count) {
+
+            long[] words = new long[CHUNK_SIZE >>> 6];
+
+            for (int i = 0; i < count; i++) {
+
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+
+            return new BitsetContainer(words);
+        }
+
+        @Override
+        public boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        public int fill(int[] rows, int position, int high) {
+
+            for (int word = 0; word < words.length; word++) {
+
+                long bits = words[word];
+
+                while (bits != 0) {
+
+                    rows[position++] = high | (word << 6) | Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                }
+            }
+
+            return position;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return words.length * 8L;
+        }
+    }
+}
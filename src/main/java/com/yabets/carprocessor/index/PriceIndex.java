@@ -0,0 +1,161 @@
+package com.yabets.carprocessor.index;
+
+import com.yabets.carprocessor.store.DoubleColumn;
+import com.yabets.carprocessor.store.IntColumn;
+import com.yabets.carprocessor.store.PriceColumn;
+import com.yabets.carprocessor.store.Rows;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Rows of one currency ordered by price, highest first, as PriceSorter orders them
+public class PriceIndex {
+
+    private final PriceColumn prices;
+    private final IntColumn order;
+    private final DoubleColumn sortedKeys;
+
+    public PriceIndex(PriceColumn prices, int size) {
+
+        this.prices = prices;
+
+        // Missing prices sort last, as negative infinity; the stable sort breaks ties by row id
+        double[] keys = new double[size];
+
+        for (int row = 0; row < size; row++) {
+
+            keys[row] = prices.valueOrDefault(row, PriceColumn.MISSING);
+        }
+
+        int[] rows = Rows.all(size);
+        Rows.sort(rows, (a, b) -> Double.compare(keys[b], keys[a]));
+
+        double[] sorted = new double[size];
+
+        for (int i = 0; i < size; i++) {
+
+            sorted[i] = keys[rows[i]];
+        }
+
+        order = IntColumn.of(rows);
+        sortedKeys = DoubleColumn.of(sorted);
+    }
+
+    // An order already computed, e.g. read back from a snapshot; nothing is sorted
+    public PriceIndex(PriceColumn prices, IntColumn order, DoubleColumn sortedKeys) {
+
+        this.prices = prices;
+        this.order = order;
+        this.sortedKeys = sortedKeys;
+    }
+
+    public String currency() {
+        return prices.currency();
+    }
+
+    public PriceColumn prices() {
+        return prices;
+    }
+
+    // Every row, highest price first
+    public int[] order() {
+        return order.toArray();
+    }
+
+    // The order and each position's sort key as stored, without copying them
+    public IntColumn orderColumn() {
+        return order;
+    }
+
+    public DoubleColumn sortedKeys() {
+        return sortedKeys;
+    }
+
+    // Streams the precomputed order without copying it
+    public IntStream stream() {
+        return order.stream();
+    }
+
+    // Walks the precomputed order, keeping only the rows in the selection
+    public int[] order(int[] rows) {
+        return Rows.inOrder(order, rows);
+    }
+
+    public int[] order(int[] rows, int limit) {
+        return Rows.inOrder(order, rows, limit);
+    }
+
+    public int countInRange(double minPrice, double maxPrice) {
+        return Math.max(0, firstBelow(minPrice) - firstAtMost(maxPrice));
+    }
+
+    // Rows priced within [minPrice, maxPrice], in ascending row order
+    public int[] rowsInRange(double minPrice, double maxPrice) {
+
+        int from = firstAtMost(maxPrice);
+        int to = firstBelow(minPrice);
+
+        if (from >= to) { return new int[0]; }
+
+        int[] rows = new int[to - from];
+        int count = 0;
+
+        for (int i = from; i < to; i++) {
+
+            int row = order.get(i);
+
+            // A real price of negative infinity shares its key with the missing ones
+            if (prices.isPresent(row)) { rows[count++] = row; }
+        }
+
+        rows = Arrays.copyOf(rows, count);
+        Arrays.sort(rows);
+
+        return rows;
+    }
+
+    // Keys are descending, so "key <= price" flips from false to true exactly once
+    private int firstAtMost(double price) {
+
+        int low = 0;
+        int high = sortedKeys.length();
+
+        while (low < high) {
+
+            int mid = (low + high) >>> 1;
+
+            if (sortedKeys.get(mid) <= price) {
+
+                high = mid;
+
+            } else {
+
+                low = mid + 1;
+            }
+        }
+
+        return low;
+    }
+
+    private int firstBelow(double price) {
+
+        int low = 0;
+        int high = sortedKeys.length();
+
+        while (low < high) {
+
+            int mid = (low + high) >>> 1;
+
+            if (sortedKeys.get(mid) < price) {
+
+                high = mid;
+
+            } else {
+
+                low = mid + 1;
+            }
+        }
+
+        return low;
+    }
+}
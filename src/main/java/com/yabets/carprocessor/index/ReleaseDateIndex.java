@@ -0,0 +1,184 @@
+package com.yabets.carprocessor.index;
+
+import com.yabets.carprocessor.store.CarStore;
+import com.yabets.carprocessor.store.IntColumn;
+import com.yabets.carprocessor.store.Rows;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Rows grouped by release day, latest first, with days bucketed by year and month.
+// Release dates come from the brand join, so there are only a handful of distinct days.
+public class ReleaseDateIndex {
+
+    private final IntColumn rows;       // all rows, latest day first, row id order within a day
+    private final IntColumn days;       // distinct days, descending; NO_DATE comes last if present
+    private final IntColumn dayStarts;  // rows[dayStarts[d], dayStarts[d + 1]) share days[d]
+
+    private final IntColumn bucketKeys;   // year * 12 + month - 1, descending
+    private final IntColumn bucketStarts; // days[bucketStarts[b], bucketStarts[b + 1]) fall in bucketKeys[b]
+
+    public ReleaseDateIndex(int[] releaseDays) {
+
+        int[] rows = Rows.all(releaseDays.length);
+        Rows.sort(rows, (a, b) -> Integer.compare(releaseDays[b], releaseDays[a]));
+
+        int[] distinctDays = new int[rows.length];
+        int[] starts = new int[rows.length + 1];
+        int dayCount = 0;
+
+        for (int i = 0; i < rows.length; i++) {
+
+            int day = releaseDays[rows[i]];
+
+            if (dayCount == 0 || distinctDays[dayCount - 1] != day) {
+
+                distinctDays[dayCount] = day;
+                starts[dayCount] = i;
+                dayCount++;
+            }
+        }
+
+        starts[dayCount] = rows.length;
+
+        int[] keys = new int[dayCount];
+        int[] keyStarts = new int[dayCount + 1];
+        int bucketCount = 0;
+
+        for (int d = 0; d < dayCount && distinctDays[d] != CarStore.NO_DATE; d++) {
+
+            int key = bucketKey(distinctDays[d]);
+
+            if (bucketCount == 0 || keys[bucketCount - 1] != key) {
+
+                keys[bucketCount] = key;
+                keyStarts[bucketCount] = d;
+                bucketCount++;
+            }
+
+            keyStarts[bucketCount] = d + 1;
+        }
+
+        this.rows = IntColumn.of(rows);
+        this.days = IntColumn.of(Arrays.copyOf(distinctDays, dayCount));
+        this.dayStarts = IntColumn.of(Arrays.copyOf(starts, dayCount + 1));
+        this.bucketKeys = IntColumn.of(Arrays.copyOf(keys, bucketCount));
+        this.bucketStarts = IntColumn.of(Arrays.copyOf(keyStarts, bucketCount + 1));
+    }
+
+    // Arrays already computed, e.g. read back from a snapshot; nothing is sorted
+    public ReleaseDateIndex(IntColumn rows, IntColumn days, IntColumn dayStarts, IntColumn bucketKeys, IntColumn bucketStarts) {
+
+        this.rows = rows;
+        this.days = days;
+        this.dayStarts = dayStarts;
+        this.bucketKeys = bucketKeys;
+        this.bucketStarts = bucketStarts;
+    }
+
+    public int distinctDays() {
+        return days.length();
+    }
+
+    public int buckets() {
+        return bucketKeys.length();
+    }
+
+    // The arrays as stored, in constructor order, without copying them
+    public IntColumn[] columns() {
+        return new IntColumn[] {rows, days, dayStarts, bucketKeys, bucketStarts};
+    }
+
+    // Every row, latest release first and undated rows last
+    public int[] order() {
+        return rows.toArray();
+    }
+
+    // Streams the precomputed order without copying it
+    public IntStream stream() {
+        return rows.stream();
+    }
+
+    public int[] order(int[] selection) {
+        return Rows.inOrder(rows, selection);
+    }
+
+    public int[] order(int[] selection, int limit) {
+        return Rows.inOrder(rows, selection, limit);
+    }
+
+    public int countInRange(int startDay, int endDay) {
+
+        int count = 0;
+
+        for (int d = firstDay(endDay); d < days.length() && days.get(d) >= startDay && days.get(d) != CarStore.NO_DATE; d++) {
+
+            count += dayStarts.get(d + 1) - dayStarts.get(d);
+        }
+
+        return count;
+    }
+
+    // Rows released within [startDay, endDay], in ascending row order
+    public int[] rowsInRange(int startDay, int endDay) {
+
+        int from = firstDay(endDay);
+        int to = from;
+
+        while (to < days.length() && days.get(to) >= startDay && days.get(to) != CarStore.NO_DATE) {
+
+            to++;
+        }
+
+        if (from >= to) { return new int[0]; }
+
+        int[] selected = rows.toArray(dayStarts.get(from), dayStarts.get(to));
+        Arrays.sort(selected);
+
+        return selected;
+    }
+
+    // Index of the first distinct day on or before endDay; only the buckets up to it are skipped
+    private int firstDay(int endDay) {
+
+        int endKey = bucketKey(endDay);
+
+        // Bucket keys are descending: find the first bucket not after endDay's month
+        int low = 0;
+        int high = bucketKeys.length();
+
+        while (low < high) {
+
+            int mid = (low + high) >>> 1;
+
+            if (bucketKeys.get(mid) <= endKey) {
+
+                high = mid;
+
+            } else {
+
+                low = mid + 1;
+            }
+        }
+
+        if (low == bucketKeys.length()) { return days.length(); }
+
+        int d = bucketStarts.get(low);
+
+        // Inside endDay's own month, step past the later days
+        while (d < bucketStarts.get(low + 1) && days.get(d) > endDay) {
+
+            d++;
+        }
+
+        return d;
+    }
+
+    private static int bucketKey(int day) {
+
+        LocalDate date = LocalDate.ofEpochDay(day);
+
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+}
@@ -0,0 +1,223 @@
+package com.yabets.carprocessor.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yabets.carprocessor.metrics.LatencyHistogram;
+import com.yabets.carprocessor.output.OutputFormatter;
+import com.yabets.carprocessor.query.CarQuery;
+import com.yabets.carprocessor.store.CarStore;
+import com.yabets.carprocessor.util.Utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+// Replays a weighted command log from concurrent workers against the in-process command path,
+// timing how long each command spends being parsed, executed and rendered
+public class CommandReplay {
+
+    // Latencies of one command type; only successful commands are timed
+    private static class TypeStats {
+
+        private final LatencyHistogram parse = new LatencyHistogram();
+        private final LatencyHistogram execute = new LatencyHistogram();
+        private final LatencyHistogram render = new LatencyHistogram();
+        private final LatencyHistogram total = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+    }
+
+    public record PhaseSummary(double meanMicros, double p50Micros, double p90Micros, double p99Micros, double p999Micros, double maxMicros) {
+
+        static PhaseSummary of(LatencyHistogram histogram) {
+
+            return new PhaseSummary(histogram.mean() / 1_000, histogram.percentile(0.50) / 1_000.0, histogram.percentile(0.90) / 1_000.0,
+                    histogram.percentile(0.99) / 1_000.0, histogram.percentile(0.999) / 1_000.0, histogram.max() / 1_000.0);
+        }
+    }
+
+    // requests includes errors; latency holds the parse, execute, render and total phases, in that order
+    public record CommandSummary(String type, long weight, long requests, long errors, double throughput, Map<String, PhaseSummary> latency) {
+    }
+
+    public record Report(String startedAt, String log, int workers, double warmupSeconds, double durationSeconds, int cars,
+                         long requests, long errors, double throughput, List<CommandSummary> commands) {
+    }
+
+    private final ReplayLog log;
+    private final int workers;
+    private final Supplier<CarStore> store;
+
+    // store is read once per command, so a reload under --watch never splits one
+    public CommandReplay(ReplayLog log, int workers, Supplier<CarStore> store) {
+
+        if (workers < 1) {
+
+            throw new IllegalArgumentException("Workers must be positive: " + workers);
+        }
+
+        this.log = log;
+        this.workers = workers;
+        this.store = store;
+    }
+
+    // Warmup results are thrown away, so JIT compilation and a cold cache stay out of the report
+    public Report run(Duration warmup, Duration duration) throws InterruptedException {
+
+        if (!warmup.isZero()) {
+
+            runWorkers(warmup, newStats());
+        }
+
+        Map<String, TypeStats> stats = newStats();
+        Instant startedAt = Instant.now();
+        long start = System.nanoTime();
+
+        runWorkers(duration, stats);
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Map<String, Long> weights = new LinkedHashMap<>();
+
+        for (ReplayLog.Entry entry : log.entries()) {
+
+            weights.merge(entry.type(), (long) entry.weight(), Long::sum);
+        }
+
+        List<CommandSummary> commands = new ArrayList<>();
+        long requests = 0;
+        long errors = 0;
+
+        for (Map.Entry<String, TypeStats> entry : stats.entrySet()) {
+
+            TypeStats typeStats = entry.getValue();
+
+            Map<String, PhaseSummary> latency = new LinkedHashMap<>();
+            latency.put("parse", PhaseSummary.of(typeStats.parse));
+            latency.put("execute", PhaseSummary.of(typeStats.execute));
+            latency.put("render", PhaseSummary.of(typeStats.render));
+            latency.put("total", PhaseSummary.of(typeStats.total));
+
+            long failed = typeStats.errors.sum();
+            long count = typeStats.total.count() + failed;
+
+            commands.add(new CommandSummary(entry.getKey(), weights.get(entry.getKey()), count, failed, count / seconds, latency));
+
+            requests += count;
+            errors += failed;
+        }
+
+        return new Report(startedAt.toString(), log.source().toString(), workers, warmup.toMillis() / 1_000.0, seconds,
+                store.get().size(), requests, errors, requests / seconds, commands);
+    }
+
+    public static void write(Report report, Path file) throws IOException {
+
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+    }
+
+    public static void print(Report report, PrintStream out) {
+
+        out.printf("Replay: %d workers, %.1f s, %d cars, %d requests (%.1f/s), %d errors%n",
+                report.workers(), report.durationSeconds(), report.cars(), report.requests(), report.throughput(), report.errors());
+
+        out.printf("  %-20s %10s %7s %9s %9s %9s %9s   %s%n", "command", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p999 ms", "p99 parse/execute/render ms");
+
+        for (CommandSummary command : report.commands()) {
+
+            PhaseSummary total = command.latency().get("total");
+
+            out.printf("  %-20s %10.1f %7d %9.3f %9.3f %9.3f %9.3f   %.3f/%.3f/%.3f%n",
+                    command.type(), command.throughput(), command.errors(),
+                    total.p50Micros() / 1_000, total.p90Micros() / 1_000, total.p99Micros() / 1_000, total.p999Micros() / 1_000,
+                    command.latency().get("parse").p99Micros() / 1_000, command.latency().get("execute").p99Micros() / 1_000,
+                    command.latency().get("render").p99Micros() / 1_000);
+        }
+    }
+
+    // One entry per command type, in the order the log first mentions them
+    private Map<String, TypeStats> newStats() {
+
+        Map<String, TypeStats> stats = new LinkedHashMap<>();
+
+        for (ReplayLog.Entry entry : log.entries()) {
+
+            stats.computeIfAbsent(entry.type(), type -> new TypeStats());
+        }
+
+        return stats;
+    }
+
+    private void runWorkers(Duration duration, Map<String, TypeStats> stats) throws InterruptedException {
+
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Thread> threads = new ArrayList<>(workers);
+
+        for (int i = 0; i < workers; i++) {
+
+            long seed = i;
+
+            threads.add(Thread.ofPlatform().name("replay-worker-" + i).start(() -> replay(seed, deadline, stats)));
+        }
+
+        for (Thread thread : threads) {
+
+            thread.join();
+        }
+    }
+
+    // Each worker draws its own seeded command sequence, so a rerun replays the same mix
+    private void replay(long seed, long deadline, Map<String, TypeStats> stats) {
+
+        SplittableRandom random = new SplittableRandom(seed);
+
+        // Rendered text is encoded as for stdout, then discarded
+        Writer sink = new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8), OutputFormatter.BUFFER_SIZE);
+
+        while (System.nanoTime() < deadline) {
+
+            ReplayLog.Entry entry = log.pick(random);
+            TypeStats typeStats = stats.get(entry.type());
+            CarStore snapshot = store.get();
+
+            try {
+
+                long start = System.nanoTime();
+
+                CarQuery query = Utils.parseQuery(entry.command().split("\\s+"));
+                long parsed = System.nanoTime();
+
+                int[] rows = Utils.execute(query, snapshot);
+                long executed = System.nanoTime();
+
+                Utils.render(query, rows, snapshot, entry.format(), sink);
+                sink.flush();
+                long rendered = System.nanoTime();
+
+                typeStats.parse.record(parsed - start);
+                typeStats.execute.record(executed - parsed);
+                typeStats.render.record(rendered - executed);
+                typeStats.total.record(rendered - start);
+
+            } catch (IOException | RuntimeException e) {
+
+                typeStats.errors.increment();
+            }
+
+            if (entry.thinkNanos() > 0) { LockSupport.parkNanos(entry.thinkNanos()); }
+        }
+    }
+}
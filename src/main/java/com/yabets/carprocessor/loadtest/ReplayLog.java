@@ -0,0 +1,164 @@
+package com.yabets.carprocessor.loadtest;
+
+import com.yabets.carprocessor.output.OutputFormatter;
+import com.yabets.carprocessor.util.Utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// A recorded command log, one command per line, optionally prefixed by a weight and a think time in ms:
+//   5 20 filter brand-price Toyota 20000 40000 USD
+// Lines without a prefix weigh 1 with no think time; "output <format>" applies to the commands after it
+public class ReplayLog {
+
+    // One replayable command; type groups commands for the report, e.g. "filter brand-price"
+    public record Entry(String command, String type, String format, int weight, long thinkNanos) {
+    }
+
+    private final Path source;
+    private final List<Entry> entries;
+    private final long[] cumulativeWeights;
+    private final int skipped;
+
+    private ReplayLog(Path source, List<Entry> entries, int skipped) {
+
+        this.source = source;
+        this.entries = Collections.unmodifiableList(entries);
+        this.skipped = skipped;
+
+        cumulativeWeights = new long[entries.size()];
+        long total = 0;
+
+        for (int i = 0; i < entries.size(); i++) {
+
+            total += entries.get(i).weight();
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public static ReplayLog read(Path file) throws IOException {
+
+        List<Entry> entries = new ArrayList<>();
+        String format = "table";
+        int skipped = 0;
+        int lineNumber = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+
+                lineNumber++;
+
+                String text = line.trim();
+
+                if (text.isEmpty() || text.startsWith("#")) { continue; }
+
+                String[] parts = text.split("\\s+");
+                int first = 0;
+                int weight = 1;
+                long thinkMillis = 0;
+
+                // Commands never start with a digit, so leading numbers are always the prefix
+                if (isNumber(parts[first])) { weight = parseNumber(parts[first++], "weight", 1, lineNumber); }
+                if (first < parts.length && isNumber(parts[first])) { thinkMillis = parseNumber(parts[first++], "think time", 0, lineNumber); }
+
+                if (first == parts.length) {
+
+                    throw new IllegalArgumentException("Missing command at line " + lineNumber + " of " + file);
+                }
+
+                String verb = parts[first].toLowerCase();
+
+                switch (verb) {
+                    case "filter", "sort", "query" -> {
+
+                        String[] command = Arrays.copyOfRange(parts, first, parts.length);
+                        String type = Utils.commandType(command);
+
+                        entries.add(new Entry(String.join(" ", command), type, format, weight, thinkMillis * 1_000_000));
+                    }
+                    case "output" -> {
+
+                        if (parts.length != first + 2) {
+
+                            throw new IllegalArgumentException("Usage: output <table|xml|json> at line " + lineNumber + " of " + file);
+                        }
+
+                        format = parts[first + 1].toLowerCase();
+                        OutputFormatter.forFormat(format); // Rejects an unknown format before the run starts
+                    }
+                    // help, cache, snapshot and exit never reach the query path
+                    default -> skipped++;
+                }
+            }
+        }
+
+        if (entries.isEmpty()) {
+
+            throw new IllegalArgumentException("No filter, sort or query commands in " + file);
+        }
+
+        return new ReplayLog(file, entries, skipped);
+    }
+
+    public Path source() {
+        return source;
+    }
+
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    // Lines ignored because their command is not a query
+    public int skipped() {
+        return skipped;
+    }
+
+    // Picks an entry with probability proportional to its weight
+    public Entry pick(SplittableRandom random) {
+
+        long target = random.nextLong(cumulativeWeights[cumulativeWeights.length - 1]);
+
+        int low = 0;
+        int high = cumulativeWeights.length - 1;
+
+        while (low < high) {
+
+            int mid = (low + high) >>> 1;
+
+            if (cumulativeWeights[mid] <= target) { low = mid + 1; } else { high = mid; }
+        }
+
+        return entries.get(low);
+    }
+
+    private static boolean isNumber(String text) {
+        return Character.isDigit(text.charAt(0));
+    }
+
+    private static int parseNumber(String text, String name, int min, int lineNumber) {
+
+        try {
+
+            int value = Integer.parseInt(text);
+
+            if (value >= min) { return value; }
+
+        } catch (NumberFormatException e) {
+
+            // Reported below, with the out-of-range values
+        }
+
+        throw new IllegalArgumentException("Invalid " + name + " at line " + lineNumber + ": " + text);
+    }
+}
@@ -0,0 +1,76 @@
+package com.yabets.carprocessor.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Timings and row counts of one command type; only commands that complete are timed
+public class CommandMetrics implements CommandMetricsMBean {
+
+    private final String type;
+
+    private final LatencyHistogram parse = new LatencyHistogram();
+    private final LatencyHistogram execute = new LatencyHistogram();
+    private final LatencyHistogram render = new LatencyHistogram();
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> phases;
+
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rowsIn = new LongAdder();
+    private final LongAdder rowsOut = new LongAdder();
+    private final LongAdder charsRendered = new LongAdder();
+
+    public CommandMetrics(String type) {
+
+        this.type = type;
+
+        Map<String, LatencyHistogram> byName = new LinkedHashMap<>();
+        byName.put("parse", parse);
+        byName.put("execute", execute);
+        byName.put("render", render);
+        byName.put("total", total);
+
+        phases = Collections.unmodifiableMap(byName);
+    }
+
+    // rowsIn is the dataset size the query ran over, rowsOut the rows it selected
+    public void record(long parseNanos, long executeNanos, long renderNanos, int rowsIn, int rowsOut, long chars) {
+
+        parse.record(parseNanos);
+        execute.record(executeNanos);
+        render.record(renderNanos);
+        total.record(parseNanos + executeNanos + renderNanos);
+
+        this.rowsIn.add(rowsIn);
+        this.rowsOut.add(rowsOut);
+        charsRendered.add(chars);
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    // parse, execute, render and total, in that order
+    public Map<String, LatencyHistogram> phases() {
+        return phases;
+    }
+
+    @Override
+    public String getType() { return type; }
+
+    @Override
+    public long getCount() { return total.count(); }
+
+    @Override
+    public long getErrors() { return errors.sum(); }
+
+    @Override
+    public long getRowsIn() { return rowsIn.sum(); }
+
+    @Override
+    public long getRowsOut() { return rowsOut.sum(); }
+
+    @Override
+    public long getCharsRendered() { return charsRendered.sum(); }
+}
@@ -0,0 +1,17 @@
+package com.yabets.carprocessor.metrics;
+
+// JMX view of a CommandMetrics; phase latencies are published as LatencyHistogram beans of their own
+public interface CommandMetricsMBean {
+
+    String getType();
+
+    long getCount();
+
+    long getErrors();
+
+    long getRowsIn();
+
+    long getRowsOut();
+
+    long getCharsRendered();
+}
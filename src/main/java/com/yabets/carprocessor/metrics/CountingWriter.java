@@ -0,0 +1,50 @@
+package com.yabets.carprocessor.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// Passes everything through to the wrapped writer, counting characters; closing it leaves the wrapped writer open
+public class CountingWriter extends Writer {
+
+    private final Writer out;
+    private long count;
+
+    public CountingWriter(Writer out) {
+        this.out = out;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+
+        out.write(c);
+        count++;
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+
+        out.write(buffer, offset, length);
+        count += length;
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+
+        out.write(text, offset, length);
+        count += length;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,111 @@
+package com.yabets.carprocessor.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Log-linear histogram of nanosecond latencies: 32 buckets per power of two, so a percentile is off by at most ~3%.
+// Recording never locks, so any number of threads can share one histogram.
+public class LatencyHistogram implements LatencyHistogramMBean {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    // Enough buckets for any non-negative long
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+
+        long value = Math.max(0, nanos);
+
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+
+        // Only contended while the maximum is still climbing
+        if (value > max.get()) { max.accumulateAndGet(value, Math::max); }
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+
+        long samples = count.sum();
+
+        return samples > 0 ? (double) sum.sum() / samples : 0.0;
+    }
+
+    // Upper bound of the bucket holding the given quantile (0.5 for p50), capped at the largest value seen
+    public long percentile(double quantile) {
+
+        long total = 0;
+
+        for (int i = 0; i < BUCKETS; i++) { total += counts.get(i); }
+
+        if (total == 0) { return 0; }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+
+            seen += counts.get(i);
+
+            if (seen >= rank) { return Math.min(upperBound(i), max.get()); }
+        }
+
+        return max.get();
+    }
+
+    @Override
+    public long getCount() { return count(); }
+
+    @Override
+    public double getMeanMillis() { return mean() / 1_000_000; }
+
+    @Override
+    public double getP50Millis() { return percentile(0.50) / 1_000_000.0; }
+
+    @Override
+    public double getP90Millis() { return percentile(0.90) / 1_000_000.0; }
+
+    @Override
+    public double getP99Millis() { return percentile(0.99) / 1_000_000.0; }
+
+    @Override
+    public double getP999Millis() { return percentile(0.999) / 1_000_000.0; }
+
+    @Override
+    public double getMaxMillis() { return max() / 1_000_000.0; }
+
+    // Values below 64 get a bucket each; above that, the top six bits pick the bucket
+    private static int index(long value) {
+
+        if (value < SUB_BUCKETS) { return (int) value; }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + (int) ((value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    private static long upperBound(int index) {
+
+        if (index < SUB_BUCKETS) { return index; }
+
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+
+        return lower + (1L << shift) - 1;
+    }
+}
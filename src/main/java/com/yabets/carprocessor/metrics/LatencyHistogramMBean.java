@@ -0,0 +1,19 @@
+package com.yabets.carprocessor.metrics;
+
+// JMX view of a LatencyHistogram
+public interface LatencyHistogramMBean {
+
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+}
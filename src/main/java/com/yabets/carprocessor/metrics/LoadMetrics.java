@@ -0,0 +1,56 @@
+package com.yabets.carprocessor.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Durations of startup loads from XML/CSV or from a snapshot, and of reloads under --watch
+public class LoadMetrics implements LoadMetricsMBean {
+
+    private final LatencyHistogram files = new LatencyHistogram();
+    private final LatencyHistogram snapshots = new LatencyHistogram();
+    private final LatencyHistogram reloads = new LatencyHistogram();
+    private final LongAdder reloadFailures = new LongAdder();
+
+    private volatile int cars;
+
+    public void recordFileLoad(long nanos, int cars) {
+
+        files.record(nanos);
+        this.cars = cars;
+    }
+
+    public void recordSnapshotLoad(long nanos, int cars) {
+
+        snapshots.record(nanos);
+        this.cars = cars;
+    }
+
+    public void recordReload(long nanos, int cars) {
+
+        reloads.record(nanos);
+        this.cars = cars;
+    }
+
+    public void recordReloadFailure() {
+        reloadFailures.increment();
+    }
+
+    public LatencyHistogram files() { return files; }
+    public LatencyHistogram snapshots() { return snapshots; }
+    public LatencyHistogram reloads() { return reloads; }
+
+    @Override
+    public long getFileLoads() { return files.count(); }
+
+    @Override
+    public long getSnapshotLoads() { return snapshots.count(); }
+
+    @Override
+    public long getReloads() { return reloads.count(); }
+
+    @Override
+    public long getReloadFailures() { return reloadFailures.sum(); }
+
+    // Rows in the dataset the last load produced
+    @Override
+    public int getCars() { return cars; }
+}
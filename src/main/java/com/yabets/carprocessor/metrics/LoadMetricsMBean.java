@@ -0,0 +1,15 @@
+package com.yabets.carprocessor.metrics;
+
+// JMX view of a LoadMetrics; durations are published as LatencyHistogram beans of their own
+public interface LoadMetricsMBean {
+
+    long getFileLoads();
+
+    long getSnapshotLoads();
+
+    long getReloads();
+
+    long getReloadFailures();
+
+    int getCars();
+}
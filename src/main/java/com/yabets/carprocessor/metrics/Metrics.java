@@ -0,0 +1,89 @@
+package com.yabets.carprocessor.metrics;
+
+import com.yabets.carprocessor.cache.QueryCache;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+// Process-wide metrics of the command path and the loader, shared by the stats command and JMX
+public final class Metrics {
+
+    private static final Logger LOGGER = Logger.getLogger(Metrics.class.getName());
+
+    private static final String DOMAIN = "com.yabets.carprocessor";
+
+    // Every query command type; fixed, so a mistyped command never creates metrics of its own
+    private static final Map<String, CommandMetrics> COMMANDS = new LinkedHashMap<>();
+
+    static {
+
+        for (String type : List.of("filter brand-price", "filter brand-date", "sort year", "sort price", "sort currency-type", "query")) {
+
+            COMMANDS.put(type, new CommandMetrics(type));
+        }
+    }
+
+    private static final LoadMetrics LOADS = new LoadMetrics();
+
+    private Metrics() {
+    }
+
+    // Null for anything but a query command type
+    public static CommandMetrics command(String type) {
+        return COMMANDS.get(type);
+    }
+
+    public static Collection<CommandMetrics> commands() {
+        return Collections.unmodifiableCollection(COMMANDS.values());
+    }
+
+    public static LoadMetrics loads() {
+        return LOADS;
+    }
+
+    // Starting the platform MBean server takes hundreds of milliseconds, so it happens off the startup path
+    public static void exportJmx(Supplier<QueryCache.Stats> cacheStats) {
+
+        Thread thread = new Thread(() -> register(cacheStats), "metrics-jmx");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void register(Supplier<QueryCache.Stats> cacheStats) {
+
+        try {
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+            for (CommandMetrics command : COMMANDS.values()) {
+
+                String name = DOMAIN + ":type=Command,name=" + ObjectName.quote(command.getType());
+                server.registerMBean(command, new ObjectName(name));
+
+                for (Map.Entry<String, LatencyHistogram> phase : command.phases().entrySet()) {
+
+                    server.registerMBean(phase.getValue(), new ObjectName(name + ",phase=" + phase.getKey()));
+                }
+            }
+
+            server.registerMBean(LOADS, new ObjectName(DOMAIN + ":type=Load"));
+            server.registerMBean(LOADS.files(), new ObjectName(DOMAIN + ":type=Load,name=files"));
+            server.registerMBean(LOADS.snapshots(), new ObjectName(DOMAIN + ":type=Load,name=snapshot"));
+            server.registerMBean(LOADS.reloads(), new ObjectName(DOMAIN + ":type=Load,name=reload"));
+            server.registerMBean(new QueryCacheMetrics(cacheStats), new ObjectName(DOMAIN + ":type=QueryCache"));
+
+        } catch (JMException e) {
+
+            LOGGER.warning("Failed to export metrics over JMX: " + e.getMessage());
+        }
+    }
+}
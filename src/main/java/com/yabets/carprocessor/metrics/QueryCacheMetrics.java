@@ -0,0 +1,39 @@
+package com.yabets.carprocessor.metrics;
+
+import com.yabets.carprocessor.cache.QueryCache;
+
+import java.util.function.Supplier;
+
+// Reads the current cache's counters on every call, so replacing the cache needs no re-registration
+public class QueryCacheMetrics implements QueryCacheMetricsMBean {
+
+    private final Supplier<QueryCache.Stats> stats;
+
+    public QueryCacheMetrics(Supplier<QueryCache.Stats> stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    public int getEntries() { return stats.get().entries(); }
+
+    @Override
+    public long getBytes() { return stats.get().bytes(); }
+
+    @Override
+    public long getHits() { return stats.get().hits(); }
+
+    @Override
+    public long getMisses() { return stats.get().misses(); }
+
+    @Override
+    public double getHitRate() { return stats.get().hitRate(); }
+
+    @Override
+    public long getRenderedHits() { return stats.get().renderedHits(); }
+
+    @Override
+    public long getEvictions() { return stats.get().evictions(); }
+
+    @Override
+    public long getInvalidations() { return stats.get().invalidations(); }
+}
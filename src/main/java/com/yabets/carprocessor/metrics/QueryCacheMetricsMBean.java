@@ -0,0 +1,21 @@
+package com.yabets.carprocessor.metrics;
+
+// JMX view of the query cache counters
+public interface QueryCacheMetricsMBean {
+
+    int getEntries();
+
+    long getBytes();
+
+    long getHits();
+
+    long getMisses();
+
+    double getHitRate();
+
+    long getRenderedHits();
+
+    long getEvictions();
+
+    long getInvalidations();
+}
@@ -1,14 +1,17 @@
 package com.yabets.carprocessor.model;
 
+import jakarta.xml.bind.Unmarshaller;
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
 import jakarta.xml.bind.annotation.XmlElement;
 import jakarta.xml.bind.annotation.XmlRootElement;
+import jakarta.xml.bind.annotation.XmlTransient;
 import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @XmlRootElement(name = "car")
 @XmlAccessorType(XmlAccessType.FIELD)
@@ -18,12 +21,22 @@ public class Car {
     private String type;
     @XmlElement
     private String model;
+    // Only filled by JAXB; normalized into the arrays below and dropped, so no car keeps the boxed prices
     @XmlElement
     private Prices prices;
     private String brand;
     @XmlJavaTypeAdapter(LocalDateAdapter.class)
     private LocalDate releaseDate;
 
+    // Prices normalized once: interned uppercase currency codes with parallel primitive values
+    @XmlTransient
+    private String[] currencies = NO_CURRENCIES;
+    @XmlTransient
+    private double[] values = NO_VALUES;
+
+    private static final String[] NO_CURRENCIES = new String[0];
+    private static final double[] NO_VALUES = new double[0];
+
     // Required for JAXB
     public Car() {
     }
@@ -32,32 +45,119 @@ public class Car {
 
         this.type = type;
         this.model = model;
-        this.prices = prices;
         this.brand = brand;
         this.releaseDate = releaseDate;
+
+        normalizePrices(prices);
+    }
+
+    // Over prices that are already normalized: uppercase interned codes, each at most once.
+    // The arrays are kept as they are, not copied
+    public Car(String type, String model, String[] currencies, double[] values, String brand, LocalDate releaseDate) {
+
+        this.type = type;
+        this.model = model;
+        this.currencies = currencies;
+        this.values = values;
+        this.brand = brand;
+        this.releaseDate = releaseDate;
+    }
+
+    // JAXB callback, so unmarshalled cars get the same lookup arrays
+    void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+
+        normalizePrices(prices);
+        prices = null;
+    }
+
+    // The same car joined with its brand; shares this car's price arrays
+    public Car withBrand(String brand, LocalDate releaseDate) {
+        return new Car(type, model, currencies, values, brand, releaseDate);
     }
 
     // Getters
     public String type() { return type; }
     public String model() { return model; }
-    public Prices prices() { return prices; }
     public String brand() { return brand; }
     public LocalDate releaseDate() { return releaseDate; }
 
+    public int currencyCount() { return currencies.length; }
+    public String currency(int index) { return currencies[index]; }
+    public double price(int index) { return values[index]; }
+
+    // Allocation-free lookup; currency must already be uppercase
+    public double price(String currency, double defaultValue) {
+
+        for (int i = 0; i < currencies.length; i++) {
+
+            if (currencies[i].equals(currency)) { return values[i]; }
+        }
+
+        return defaultValue;
+    }
+
+    public boolean hasPrice(String currency) {
+
+        for (String code : currencies) {
+
+            if (code.equals(currency)) { return true; }
+        }
+
+        return false;
+    }
+
     // Normalize currency keys to uppercase
     public Map<String, Double> getPriceMap() {
 
+        Map<String, Double> priceMap = new LinkedHashMap<>();
+
+        for (int i = 0; i < currencies.length; i++) {
+
+            priceMap.put(currencies[i], values[i]);
+        }
+
+        return priceMap;
+    }
+
+    // Keeps the first value per currency and drops entries missing a currency or value
+    private void normalizePrices(Prices prices) {
+
         if (prices == null || prices.getPrices() == null) {
 
-            return Map.of();
+            currencies = NO_CURRENCIES;
+            values = NO_VALUES;
+            return;
+        }
+
+        String[] codes = new String[prices.getPrices().size()];
+        double[] amounts = new double[codes.length];
+        int count = 0;
+
+        for (Price price : prices.getPrices()) {
+
+            if (price.currency() == null || price.value() == null) { continue; }
+
+            String code = price.currency().toUpperCase().intern();
+
+            if (indexOf(codes, count, code) < 0) {
+
+                codes[count] = code;
+                amounts[count] = price.value();
+                count++;
+            }
+        }
+
+        currencies = Arrays.copyOf(codes, count);
+        values = Arrays.copyOf(amounts, count);
+    }
+
+    private static int indexOf(String[] codes, int count, String code) {
+
+        for (int i = 0; i < count; i++) {
+
+            if (codes[i].equals(code)) { return i; }
         }
 
-        return prices.getPrices().stream()
-                .filter(price -> price.currency() != null && price.value() != null)
-                .collect(Collectors.toMap(
-                        price -> price.currency().toUpperCase(),
-                        Price::value,
-                        (v1, v2) -> v1
-                ));
+        return -1;
     }
 }
@@ -1,39 +1,54 @@
 package com.yabets.carprocessor.output;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.yabets.carprocessor.model.Car;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
-import java.util.Map;
 
 public class JsonFormatter implements OutputFormatter {
 
     private final ObjectMapper mapper = new ObjectMapper();
 
     @Override
-    public String format(List<Car> cars) {
+    public void write(List<Car> cars, Writer writer) throws IOException {
 
-        try {
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(writer)) {
 
-            List<Map<String, Object>> jsonCars = cars.stream().map(car -> {
+            // The caller owns the writer, so closing the generator must neither close nor flush it
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            generator.useDefaultPrettyPrinter();
 
-                Map<String, Object> map = new HashMap<>();
-                map.put("type", car.type());
-                map.put("model", car.model());
-                map.put("brand", car.brand());
-                map.put("prices", car.getPriceMap());
-                map.put("releaseDate", car.releaseDate() != null ? car.releaseDate().toString() : null);
+            generator.writeStartArray();
 
-                return map;
+            for (Car car : cars) {
 
-            }).toList();
+                generator.writeStartObject();
+                generator.writeStringField("type", car.type());
+                generator.writeStringField("model", car.model());
+                generator.writeStringField("brand", car.brand());
 
-            return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(jsonCars);
+                generator.writeObjectFieldStart("prices");
 
-        } catch (Exception e) {
+                for (int i = 0; i < car.currencyCount(); i++) {
 
-            throw new RuntimeException("Failed to format JSON: " + e.getMessage());
+                    generator.writeNumberField(car.currency(i), car.price(i));
+                }
+
+                generator.writeEndObject();
+
+                generator.writeStringField("releaseDate", car.releaseDate() != null ? car.releaseDate().toString() : null);
+                generator.writeEndObject();
+            }
+
+            generator.writeEndArray();
+
+        } catch (IOException e) {
+
+            throw new IOException("Failed to format JSON: " + e.getMessage(), e);
         }
     }
 }
@@ -2,9 +2,54 @@ package com.yabets.carprocessor.output;
 
 import com.yabets.carprocessor.model.Car;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 public interface OutputFormatter {
 
-    String format(List<Car> cars);
-}
\ No newline at end of file
+    int BUFFER_SIZE = 64 * 1024;
+
+    // Formatters keep no state between calls, but a fresh one per call keeps threads fully apart
+    static OutputFormatter forFormat(String format) {
+
+        return switch (format.toLowerCase()) {
+            case "table" -> new TableFormatter();
+            case "xml" -> new XmlFormatter();
+            case "json" -> new JsonFormatter();
+            default -> throw new IllegalArgumentException("Invalid output format: " + format);
+        };
+    }
+
+    // Renders row by row into the writer; callers own flushing and closing it
+    void write(List<Car> cars, Writer writer) throws IOException;
+
+    default void write(List<Car> cars, OutputStream out) throws IOException {
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        write(cars, writer);
+        writer.flush();
+    }
+
+    default String format(List<Car> cars) {
+
+        StringWriter writer = new StringWriter();
+
+        try {
+
+            write(cars, writer);
+
+        } catch (IOException e) {
+
+            throw new UncheckedIOException(e);
+        }
+
+        return writer.toString();
+    }
+}
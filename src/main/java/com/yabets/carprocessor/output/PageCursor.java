@@ -0,0 +1,77 @@
+package com.yabets.carprocessor.output;
+
+import com.yabets.carprocessor.model.Car;
+import com.yabets.carprocessor.store.CarStore;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Position in a query result shown one page at a time; keeps the row ids and the store they
+// came from, so paging never re-runs the query and a reload does not shift the pages
+public class PageCursor {
+
+    private final CarStore store;
+    private final int[] rows;
+    private final int pageSize;
+    private int page;
+
+    public PageCursor(CarStore store, int[] rows, int pageSize) {
+
+        if (pageSize < 1) {
+
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+
+        this.store = store;
+        this.rows = rows;
+        this.pageSize = pageSize;
+    }
+
+    // An empty result still has one (empty) page
+    public int pages() {
+        return Math.max(1, (rows.length + pageSize - 1) / pageSize);
+    }
+
+    // Zero-based
+    public int page() {
+        return page;
+    }
+
+    public int total() {
+        return rows.length;
+    }
+
+    public void moveTo(int newPage) {
+
+        if (newPage < 0 || newPage >= pages()) {
+
+            throw new IllegalArgumentException("No page " + (newPage + 1) + ": the result has " + pages() + " page(s)");
+        }
+
+        page = newPage;
+    }
+
+    // Index of the first row on the current page
+    public int from() {
+        return Math.min(page * pageSize, rows.length);
+    }
+
+    // Index one past the last row on the current page
+    public int to() {
+        return Math.min(from() + pageSize, rows.length);
+    }
+
+    // Same result under another page size, on the page that holds the current first row
+    public PageCursor resize(int newPageSize) {
+
+        PageCursor resized = new PageCursor(store, rows, newPageSize);
+        resized.page = from() / newPageSize;
+
+        return resized;
+    }
+
+    // Only the current page's cars, so nothing else gets rendered
+    public List<Car> visible() {
+        return store.cars(Arrays.copyOfRange(rows, from(), to()));
+    }
+}
@@ -2,34 +2,201 @@ package com.yabets.carprocessor.output;
 
 import com.yabets.carprocessor.model.Car;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
 
+// Fixed-width table, laid out as String.format("%-10s %-15s %-10s %-10.2f ... %-12s%n") would, but
+// written column by column into one reusable line buffer instead of parsing a format string per row
 public class TableFormatter implements OutputFormatter {
 
+    private static final String[] LABELS = {"Type", "Model", "Brand", "USD", "EUR", "GBP", "JPY", "Release Date"};
+    private static final int[] WIDTHS = {10, 15, 10, 10, 10, 10, 10, 12};
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP", "JPY"};
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    // Prices of this many cents or more are left to Formatter, where a double no longer resolves cents finely enough
+    private static final double MAX_FAST_CENTS = 1e13;
+
+    // Scaled prices this close to a .5 tie, in ulps, are left to Formatter, whose HALF_UP rounding of the decimal
+    // value can go the other way than Math.round of the binary one
+    private static final int TIE_ULPS = 4;
+
     @Override
-    public String format(List<Car> cars) {
+    public void write(List<Car> cars, Writer writer) throws IOException {
 
-        StringBuilder sb = new StringBuilder();
+        Line line = new Line();
 
-        sb.append(String.format("%-10s %-15s %-10s %-10s %-10s %-10s %-12s%n",
-                "Type", "Model", "Brand", "USD", "EUR", "GBP", "JPY", "Release Date"));
+        for (int i = 0; i < LABELS.length; i++) {
 
-        sb.append("-".repeat(80)).append("\n");
+            line.column(LABELS[i], i);
+        }
+
+        line.writeTo(writer);
+
+        writer.write("-".repeat(80));
+        writer.write("\n");
 
         for (Car car : cars) {
 
-            Map<String, Double> priceMap = car.getPriceMap();
+            line.column(car.type(), 0);
+            line.column(car.model(), 1);
+            line.column(car.brand(), 2);
+
+            for (int i = 0; i < CURRENCIES.length; i++) {
+
+                line.price(car.price(CURRENCIES[i], 0.0), 3 + i);
+            }
+
+            line.date(car.releaseDate(), 7);
+            line.writeTo(writer);
+        }
+    }
+
+    // One table row being assembled; columns are appended left to right, then written out in one call
+    private static class Line {
+
+        private final Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        private final char decimalSeparator;
+        private final boolean asciiDigits;
+
+        private char[] buffer = new char[128];
+        private int length;
+
+        Line() {
+
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+
+            decimalSeparator = symbols.getDecimalSeparator();
+            asciiDigits = symbols.getZeroDigit() == '0';
+        }
+
+        // Left-aligned and padded to the column width; longer values are never cut, as with %-Ns
+        void column(String value, int column) {
+
+            String text = String.valueOf(value);
+
+            start(column);
+            ensureCapacity(Math.max(text.length(), WIDTHS[column]));
+
+            text.getChars(0, text.length(), buffer, length);
+            length += text.length();
+
+            pad(column, text.length());
+        }
+
+        void price(double value, int column) {
+
+            double scaled = value * 100;
+
+            // Non-negative, not -0.0 and clear of a rounding tie: the rounded cents can be written directly
+            if (!asciiDigits || Double.doubleToRawLongBits(value) < 0 || !(scaled < MAX_FAST_CENTS)
+                    || Math.abs(scaled - Math.floor(scaled) - 0.5) <= TIE_ULPS * Math.ulp(scaled)) {
+
+                column(String.format(locale, "%.2f", value), column);
+                return;
+            }
+
+            long cents = Math.round(scaled);
+            long whole = cents / 100;
+            int fraction = (int) (cents % 100);
+
+            start(column);
+            ensureCapacity(WIDTHS[column] + 20);
+
+            int begin = length;
+
+            appendNumber(whole);
+            buffer[length++] = decimalSeparator;
+            buffer[length++] = (char) ('0' + fraction / 10);
+            buffer[length++] = (char) ('0' + fraction % 10);
 
-            sb.append(String.format("%-10s %-15s %-10s %-10.2f %-10.2f %-10.2f %-10.2f %-12s%n",
-                    car.type(), car.model(), car.brand(),
-                    priceMap.getOrDefault("USD", 0.0),
-                    priceMap.getOrDefault("EUR", 0.0),
-                    priceMap.getOrDefault("GBP", 0.0),
-                    priceMap.getOrDefault("JPY", 0.0),
-                    car.releaseDate() != null ? car.releaseDate().toString() : ""));
+            pad(column, length - begin);
         }
 
-        return sb.toString();
+        // yyyy-MM-dd as LocalDate.toString() gives it, or an empty column
+        void date(LocalDate date, int column) {
+
+            if (date == null || date.getYear() < 1000 || date.getYear() > 9999) {
+
+                column(date != null ? date.toString() : "", column);
+                return;
+            }
+
+            start(column);
+            ensureCapacity(WIDTHS[column]);
+
+            appendNumber(date.getYear());
+            buffer[length++] = '-';
+            appendTwoDigits(date.getMonthValue());
+            buffer[length++] = '-';
+            appendTwoDigits(date.getDayOfMonth());
+
+            pad(column, 10);
+        }
+
+        void writeTo(Writer writer) throws IOException {
+
+            ensureCapacity(LINE_SEPARATOR.length());
+
+            LINE_SEPARATOR.getChars(0, LINE_SEPARATOR.length(), buffer, length);
+            length += LINE_SEPARATOR.length();
+
+            writer.write(buffer, 0, length);
+            length = 0;
+        }
+
+        // Columns are separated by one space
+        private void start(int column) {
+
+            if (column > 0) {
+
+                ensureCapacity(1);
+                buffer[length++] = ' ';
+            }
+        }
+
+        private void pad(int column, int written) {
+
+            for (int i = written; i < WIDTHS[column]; i++) {
+
+                buffer[length++] = ' ';
+            }
+        }
+
+        private void appendNumber(long value) {
+
+            int digits = 1;
+
+            for (long rest = value / 10; rest > 0; rest /= 10) { digits++; }
+
+            for (int i = length + digits - 1; i >= length; i--) {
+
+                buffer[i] = (char) ('0' + value % 10);
+                value /= 10;
+            }
+
+            length += digits;
+        }
+
+        private void appendTwoDigits(int value) {
+
+            buffer[length++] = (char) ('0' + value / 10);
+            buffer[length++] = (char) ('0' + value % 10);
+        }
+
+        private void ensureCapacity(int extra) {
+
+            if (length + extra > buffer.length) {
+
+                char[] grown = new char[Math.max(buffer.length * 2, length + extra)];
+                System.arraycopy(buffer, 0, grown, 0, length);
+                buffer = grown;
+            }
+        }
     }
 }
@@ -1,49 +1,103 @@
 package com.yabets.carprocessor.output;
 
 import com.yabets.carprocessor.model.Car;
-import com.yabets.carprocessor.model.Cars;
-import com.yabets.carprocessor.model.Price;
-import com.yabets.carprocessor.model.Prices;
-import jakarta.xml.bind.JAXBContext;
-import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Marshaller;
-
-import java.io.StringWriter;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
 public class XmlFormatter implements OutputFormatter {
 
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private static final String[] INDENTS = { "\n", "\n    ", "\n        ", "\n            " };
+
     @Override
-    public String format(List<Car> cars) {
+    public void write(List<Car> cars, Writer writer) throws IOException {
 
         try {
 
-            Cars xmlCars = new Cars();
-            xmlCars.setCars(cars.stream().map(car -> {
+            XMLStreamWriter xml = XML_OUTPUT_FACTORY.createXMLStreamWriter(new UnflushedWriter(writer));
+
+            xml.writeStartDocument("UTF-8", "1.0");
+            newLine(xml, 0);
+            xml.writeStartElement("cars");
+
+            for (Car car : cars) {
+
+                newLine(xml, 1);
+                xml.writeStartElement("car");
+
+                writeElement(xml, 2, "type", car.type());
+                writeElement(xml, 2, "model", car.model());
+
+                newLine(xml, 2);
+                xml.writeStartElement("prices");
+
+                for (int i = 0; i < car.currencyCount(); i++) {
+
+                    newLine(xml, 3);
+                    xml.writeStartElement("price");
+                    xml.writeAttribute("currency", car.currency(i));
+                    xml.writeCharacters(Double.toString(car.price(i)));
+                    xml.writeEndElement();
+                }
+
+                newLine(xml, 2);
+                xml.writeEndElement();
 
-                Prices prices = new Prices();
+                writeElement(xml, 2, "brand", car.brand());
+                writeElement(xml, 2, "releaseDate", car.releaseDate() != null ? car.releaseDate().toString() : null);
 
-                List<Price> priceList = car.getPriceMap().entrySet().stream()
-                        .map(entry -> new Price(entry.getKey(), entry.getValue()))
-                        .toList();
+                newLine(xml, 1);
+                xml.writeEndElement();
+            }
 
-                prices.setPrices(priceList);
+            newLine(xml, 0);
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.close(); // Hands over what the stream writer still buffers; the caller's writer stays open and unflushed
 
-                return new Car(car.type(), car.model(), prices, car.brand(), car.releaseDate());
+        } catch (XMLStreamException e) {
 
-            }).toList());
+            throw new IOException("Failed to format XML: " + e.getMessage(), e);
+        }
+    }
+
+    // Null values are left out, as the JAXB marshaller did
+    private void writeElement(XMLStreamWriter xml, int depth, String name, String value) throws XMLStreamException {
 
-            JAXBContext context = JAXBContext.newInstance(Cars.class);
-            Marshaller marshaller = context.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-            StringWriter writer = new StringWriter();
-            marshaller.marshal(xmlCars, writer);
+        if (value == null) { return; }
 
-            return writer.toString();
+        newLine(xml, depth);
+        xml.writeStartElement(name);
+        xml.writeCharacters(value);
+        xml.writeEndElement();
+    }
+
+    private void newLine(XMLStreamWriter xml, int depth) throws XMLStreamException {
 
-        } catch (JAXBException e) {
+        xml.writeCharacters(INDENTS[depth]);
+    }
+
+    // The JDK stream writer flushes its target on flush() and close(), so this stops that at the formatter,
+    // as JsonFormatter does by disabling FLUSH_PASSED_TO_STREAM
+    private static class UnflushedWriter extends FilterWriter {
+
+        UnflushedWriter(Writer writer) {
+            super(writer);
+        }
+
+        @Override
+        public void flush() {
+        }
 
-            throw new RuntimeException("Failed to format XML: " + e.getMessage());
+        @Override
+        public void close() {
         }
     }
 }
@@ -5,12 +5,16 @@ import com.opencsv.exceptions.CsvValidationException;
 import com.yabets.carprocessor.model.BrandInfo;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 public class BrandCsvParser {
@@ -18,64 +22,359 @@ public class BrandCsvParser {
     private static final Logger LOGGER = Logger.getLogger(BrandCsvParser.class.getName());
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MM/dd/yyyy");
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Scans UTF-8 bytes for the plain Brand,ReleaseDate layout; rows with quotes or escapes go through OpenCSV
     public List<BrandInfo> parse(InputStream csvStream) throws IOException, CsvValidationException {
 
         List<BrandInfo> brands = new ArrayList<>();
 
-        try (CSVReader reader = new CSVReader(new InputStreamReader(csvStream))) {
+        // Dates repeat heavily, so each distinct MM/dd/yyyy is resolved by the formatter only once
+        Map<Integer, LocalDate> dates = new HashMap<>();
+
+        try (csvStream) {
+
+            LineScanner lines = new LineScanner(csvStream);
 
             // Skip header
-            String[] header = reader.readNext();
+            String[] header = lines.next() ? readFields(lines) : null;
             if (header == null || header.length < 2 || !header[0].trim().equalsIgnoreCase("Brand") || !header[1].trim().equalsIgnoreCase("ReleaseDate")) {
 
                 LOGGER.severe("Invalid CSV header: Expected 'Brand,ReleaseDate', found: " + (header != null ? String.join(",", header) : "null"));
                 throw new IOException("Invalid CSV header: Expected 'Brand,ReleaseDate'");
             }
 
-            String[] fields;
             int lineNumber = 1;
 
-            while ((fields = reader.readNext()) != null) {
+            while (lines.next()) {
 
                 lineNumber++;
 
-                if (fields.length < 2 || fields[0].trim().isEmpty()) {
+                if (lines.isPlain()) {
+
+                    parsePlainRow(lines, lineNumber, dates, brands);
+
+                } else {
 
-                    LOGGER.warning("Skipping invalid row at line " + lineNumber + ": " + String.join(",", fields));
-                    continue;
+                    parseFields(readFields(lines), lineNumber, dates, brands);
                 }
+            }
+        }
+
+        if (brands.isEmpty()) {
+
+            LOGGER.severe("No valid brand data parsed from CSV");
+            throw new IOException("No valid brand data parsed from CSV");
+        }
+
+        return brands;
+    }
 
-                try {
+    // Fast path: the row is split and trimmed on the byte buffer, strings are only built for what is kept
+    private void parsePlainRow(LineScanner lines, int lineNumber, Map<Integer, LocalDate> dates, List<BrandInfo> brands) {
 
-                    String brand = fields[0].trim();
-                    String dateStr = fields[1].trim();
+        byte[] bytes = lines.buffer();
+        int start = lines.start();
+        int end = lines.end();
 
-                    if (dateStr.isEmpty()) {
+        int comma = indexOf(bytes, start, end, (byte) ',');
 
-                        LOGGER.warning("Skipping row at line " + lineNumber + ": Empty releaseDate");
-                        continue;
-                    }
+        if (comma < 0) {
+
+            LOGGER.warning("Skipping invalid row at line " + lineNumber + ": " + lines.text());
+            return;
+        }
+
+        int brandStart = trimStart(bytes, start, comma);
+        int brandEnd = trimEnd(bytes, brandStart, comma);
 
-                    LocalDate releaseDate = LocalDate.parse(dateStr, DATE_FORMATTER);
-                    brands.add(new BrandInfo(brand, releaseDate));
+        if (brandStart == brandEnd) {
+
+            LOGGER.warning("Skipping invalid row at line " + lineNumber + ": " + lines.text());
+            return;
+        }
+
+        // Columns after the second are ignored, as with OpenCSV
+        int dateFieldEnd = indexOf(bytes, comma + 1, end, (byte) ',');
+
+        if (dateFieldEnd < 0) { dateFieldEnd = end; }
+
+        int dateStart = trimStart(bytes, comma + 1, dateFieldEnd);
+        int dateEnd = trimEnd(bytes, dateStart, dateFieldEnd);
+
+        if (dateStart == dateEnd) {
+
+            LOGGER.warning("Skipping row at line " + lineNumber + ": Empty releaseDate");
+            return;
+        }
+
+        String brand = new String(bytes, brandStart, brandEnd - brandStart, StandardCharsets.UTF_8);
+        LocalDate releaseDate = parseDate(bytes, dateStart, dateEnd, dates);
+
+        if (releaseDate == null) {
+
+            String dateField = new String(bytes, comma + 1, dateFieldEnd - comma - 1, StandardCharsets.UTF_8);
+
+            LOGGER.warning("Skipping row at line " + lineNumber + ": Invalid date format '" + dateField + "', expected MM/dd/yyyy");
+            return;
+        }
+
+        brands.add(new BrandInfo(brand, releaseDate));
+    }
+
+    // Slow path for rows OpenCSV has split
+    private void parseFields(String[] fields, int lineNumber, Map<Integer, LocalDate> dates, List<BrandInfo> brands) {
+
+        if (fields.length < 2 || fields[0].trim().isEmpty()) {
+
+            LOGGER.warning("Skipping invalid row at line " + lineNumber + ": " + String.join(",", fields));
+            return;
+        }
 
-                } catch (DateTimeParseException e) {
+        try {
 
-                    LOGGER.warning("Skipping row at line " + lineNumber + ": Invalid date format '" + fields[1] + "', expected MM/dd/yyyy");
+            String brand = fields[0].trim();
+            String dateStr = fields[1].trim();
 
-                } catch (Exception e) {
+            if (dateStr.isEmpty()) {
+
+                LOGGER.warning("Skipping row at line " + lineNumber + ": Empty releaseDate");
+                return;
+            }
+
+            byte[] dateBytes = dateStr.getBytes(StandardCharsets.UTF_8);
+            LocalDate releaseDate = parseDate(dateBytes, 0, dateBytes.length, dates);
+
+            if (releaseDate == null) {
+
+                LOGGER.warning("Skipping row at line " + lineNumber + ": Invalid date format '" + fields[1] + "', expected MM/dd/yyyy");
+                return;
+            }
+
+            brands.add(new BrandInfo(brand, releaseDate));
+
+        } catch (Exception e) {
+
+            LOGGER.warning("Skipping row at line " + lineNumber + ": " + e.getMessage());
+        }
+    }
+
+    // Null when the text is not a valid MM/dd/yyyy date
+    private static LocalDate parseDate(byte[] bytes, int start, int end, Map<Integer, LocalDate> dates) {
+
+        int key = dateKey(bytes, start, end);
+
+        LocalDate date = key >= 0 ? dates.get(key) : null;
+
+        if (date != null) { return date; }
+
+        // The formatter stays the authority on validity and on how out-of-range days resolve
+        try {
+
+            date = LocalDate.parse(new String(bytes, start, end - start, StandardCharsets.UTF_8), DATE_FORMATTER);
+
+        } catch (DateTimeParseException e) {
+
+            return null;
+        }
+
+        if (key >= 0) { dates.put(key, date); }
+
+        return date;
+    }
+
+    // yyyyMMdd packed into an int, or -1 when the bytes are not shaped like MM/dd/yyyy
+    private static int dateKey(byte[] bytes, int start, int end) {
+
+        if (end - start != 10 || bytes[start + 2] != '/' || bytes[start + 5] != '/') { return -1; }
+
+        int month = digits(bytes, start, 2);
+        int day = digits(bytes, start + 3, 2);
+        int year = digits(bytes, start + 6, 4);
+
+        if (month < 0 || day < 0 || year < 0) { return -1; }
+
+        return year * 10_000 + month * 100 + day;
+    }
+
+    private static int digits(byte[] bytes, int start, int count) {
+
+        int value = 0;
+
+        for (int i = start; i < start + count; i++) {
+
+            int digit = bytes[i] - '0';
+
+            if (digit < 0 || digit > 9) { return -1; }
+
+            value = value * 10 + digit;
+        }
+
+        return value;
+    }
 
-                    LOGGER.warning("Skipping row at line " + lineNumber + ": " + e.getMessage());
+    // Hands the current record to OpenCSV, pulling in further lines while a quoted field is still open
+    private static String[] readFields(LineScanner lines) throws IOException, CsvValidationException {
+
+        StringBuilder record = new StringBuilder(lines.text());
+
+        while (countQuotes(record) % 2 != 0 && lines.next()) {
+
+            record.append('\n').append(lines.text());
+        }
+
+        try (CSVReader reader = new CSVReader(new StringReader(record.toString()))) {
+
+            String[] fields = reader.readNext();
+
+            return fields != null ? fields : new String[] {""};
+        }
+    }
+
+    private static int countQuotes(CharSequence text) {
+
+        int count = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+
+            if (text.charAt(i) == '"') { count++; }
+        }
+
+        return count;
+    }
+
+    private static int indexOf(byte[] bytes, int start, int end, byte value) {
+
+        for (int i = start; i < end; i++) {
+
+            if (bytes[i] == value) { return i; }
+        }
+
+        return -1;
+    }
+
+    // Same whitespace as String.trim(): every byte up to and including space
+    private static int trimStart(byte[] bytes, int start, int end) {
+
+        while (start < end && (bytes[start] & 0xFF) <= ' ') { start++; }
+
+        return start;
+    }
+
+    private static int trimEnd(byte[] bytes, int start, int end) {
+
+        while (end > start && (bytes[end - 1] & 0xFF) <= ' ') { end--; }
+
+        return end;
+    }
+
+    // Splits the stream into lines in place, growing the buffer only for lines longer than it
+    private static class LineScanner {
+
+        private final InputStream in;
+        private byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private int scanned;
+        private boolean eof;
+
+        private int lineStart;
+        private int lineEnd;
+        private boolean firstLine = true;
+
+        LineScanner(InputStream in) {
+            this.in = in;
+        }
+
+        boolean next() throws IOException {
+
+            while (true) {
+
+                for (int i = scanned; i < limit; i++) {
+
+                    if (buffer[i] == '\n') {
+
+                        setLine(position, i);
+                        position = i + 1;
+                        scanned = position;
+                        return true;
+                    }
+                }
+
+                scanned = limit;
+
+                if (eof) {
+
+                    if (position == limit) { return false; }
+
+                    // Last line without a trailing newline
+                    setLine(position, limit);
+                    position = limit;
+                    return true;
                 }
+
+                fill();
             }
         }
 
-        if (brands.isEmpty()) {
+        private void fill() throws IOException {
 
-            LOGGER.severe("No valid brand data parsed from CSV");
-            throw new IOException("No valid brand data parsed from CSV");
+            if (position > 0) {
+
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                scanned -= position;
+                position = 0;
+
+            } else if (limit == buffer.length) {
+
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+
+            int read = in.read(buffer, limit, buffer.length - limit);
+
+            if (read < 0) {
+
+                eof = true;
+
+            } else {
+
+                limit += read;
+            }
         }
 
-        return brands;
+        private void setLine(int start, int end) {
+
+            if (end > start && buffer[end - 1] == '\r') { end--; }
+
+            // A UTF-8 byte order mark would otherwise end up in the first header name
+            if (firstLine && end - start >= 3 && (buffer[start] & 0xFF) == 0xEF && (buffer[start + 1] & 0xFF) == 0xBB && (buffer[start + 2] & 0xFF) == 0xBF) {
+
+                start += 3;
+            }
+
+            firstLine = false;
+            lineStart = start;
+            lineEnd = end;
+        }
+
+        byte[] buffer() { return buffer; }
+        int start() { return lineStart; }
+        int end() { return lineEnd; }
+
+        String text() {
+            return new String(buffer, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+        }
+
+        // No quote or escape character, so splitting on commas gives exactly what OpenCSV would
+        boolean isPlain() {
+
+            for (int i = lineStart; i < lineEnd; i++) {
+
+                if (buffer[i] == '"' || buffer[i] == '\\') { return false; }
+            }
+
+            return true;
+        }
     }
 }
@@ -0,0 +1,223 @@
+package com.yabets.carprocessor.parser;
+
+import com.opencsv.exceptions.CsvValidationException;
+import com.yabets.carprocessor.catalog.ModelCatalog;
+import com.yabets.carprocessor.catalog.ModelCatalog.UnknownModelPolicy;
+import com.yabets.carprocessor.model.BrandInfo;
+import com.yabets.carprocessor.model.Car;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+// Parses car shards and brands.csv concurrently, then joins them in shard order
+public class CarLoader {
+
+    private static final Logger LOGGER = Logger.getLogger(CarLoader.class.getName());
+
+    // Outcome of one shard; error is null when the shard loaded
+    public record ShardResult(String source, int cars, long elapsedNanos, String error) {
+
+        public boolean failed() {
+            return error != null;
+        }
+    }
+
+    // unknownModels counts cars whose model was not in the catalog, whether skipped or kept
+    public record Result(List<Car> cars, List<ShardResult> shards, int unknownModels) {
+
+        public long failedShards() {
+            return shards.stream().filter(ShardResult::failed).count();
+        }
+    }
+
+    private record ParsedShard(List<Car> cars, ShardResult result) {
+    }
+
+    private final CarXmlParser xmlParser = new CarXmlParser();
+    private final BrandCsvParser csvParser = new BrandCsvParser();
+    private final int threads;
+    private final ModelCatalog catalog;
+    private final UnknownModelPolicy unknownModels;
+
+    public CarLoader(int threads, ModelCatalog catalog, UnknownModelPolicy unknownModels) {
+
+        if (threads < 1) {
+
+            throw new IllegalArgumentException("Loader threads must be positive: " + threads);
+        }
+
+        this.threads = threads;
+        this.catalog = catalog;
+        this.unknownModels = unknownModels;
+    }
+
+    // Everything besides the input files that shapes the loaded rows
+    public long fingerprint() {
+        return catalog.checksum() * 31 + unknownModels.ordinal();
+    }
+
+    // A bad shard is skipped and reported; a bad brands.csv, or no usable shard at all, fails the load
+    public Result load(List<URL> shards, URL brands) throws IOException, InterruptedException {
+
+        if (shards.isEmpty()) {
+
+            throw new IOException("No car files to load");
+        }
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, shards.size() + 1), runnable -> {
+
+            Thread thread = new Thread(runnable, "car-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+
+            // Submitted first, so it never queues behind the shards
+            Future<List<BrandInfo>> brandsFuture = pool.submit(() -> parseBrands(brands));
+
+            List<Future<ParsedShard>> shardFutures = new ArrayList<>(shards.size());
+
+            for (URL shard : shards) {
+
+                shardFutures.add(pool.submit(() -> parseShard(shard)));
+            }
+
+            Map<String, LocalDate> brandDateMap = await(brandsFuture).stream()
+                    .collect(Collectors.toMap(BrandInfo::brand, BrandInfo::releaseDate));
+
+            List<Car> joinedCars = new ArrayList<>();
+            List<ShardResult> results = new ArrayList<>(shards.size());
+            int[] unknown = new int[1];
+
+            // Futures are read in shard order, so the merged order never depends on timing
+            for (int i = 0; i < shards.size(); i++) {
+
+                ParsedShard parsed = await(shardFutures.get(i));
+
+                results.add(join(parsed.result(), parsed.cars(), brandDateMap, joinedCars, unknown));
+            }
+
+            Result result = new Result(joinedCars, results, unknown[0]);
+
+            if (result.failedShards() == shards.size()) {
+
+                LOGGER.warning("Car files:" + shardSummary(results));
+                throw new IOException("All " + shards.size() + " car files failed to load");
+            }
+
+            if (unknown[0] > 0) {
+
+                LOGGER.warning(unknown[0] + " cars have models missing from the catalog" + (unknownModels == UnknownModelPolicy.SKIP ? " and were skipped" : ", tagged as " + ModelCatalog.UNKNOWN_BRAND));
+            }
+
+            // A failed shard raises the whole summary to a warning, so it is seen next to the shards that loaded
+            LOGGER.log(result.failedShards() > 0 ? Level.WARNING : Level.INFO, String.format("Loaded %d cars from %d of %d files in %.1f ms:%s",
+                    joinedCars.size(), shards.size() - result.failedShards(), shards.size(), (System.nanoTime() - start) / 1_000_000.0,
+                    shardSummary(results)));
+
+            return result;
+
+        } finally {
+
+            pool.shutdownNow();
+        }
+    }
+
+    private ShardResult join(ShardResult result, List<Car> cars, Map<String, LocalDate> brandDateMap, List<Car> joinedCars, int[] unknown) {
+
+        if (result.failed()) { return result; }
+
+        for (Car car : cars) {
+
+            String brand = catalog.brandOf(car.model());
+
+            if (brand == null) {
+
+                if (unknownModels == UnknownModelPolicy.FAIL) {
+
+                    throw new IllegalArgumentException("Unknown model: " + car.model() + " in " + result.source());
+                }
+
+                unknown[0]++;
+
+                if (unknownModels == UnknownModelPolicy.SKIP) { continue; }
+
+                brand = ModelCatalog.UNKNOWN_BRAND;
+            }
+
+            joinedCars.add(car.withBrand(brand, brandDateMap.getOrDefault(brand, null)));
+        }
+
+        return result;
+    }
+
+    // One line per shard in load order: file name, cars parsed and parse time, or why it was skipped
+    private static String shardSummary(List<ShardResult> results) {
+
+        StringBuilder text = new StringBuilder();
+
+        for (ShardResult result : results) {
+
+            String file = result.source().substring(result.source().lastIndexOf('/') + 1);
+
+            text.append(String.format("%n  %-24s %8d cars %9.1f ms", file, result.cars(), result.elapsedNanos() / 1_000_000.0));
+
+            if (result.failed()) { text.append("  skipped: ").append(result.error().replaceAll("\\s*\\R\\s*", " ")); }
+        }
+
+        return text.toString();
+    }
+
+    // Failures are caught here so one shard cannot fail the others' futures
+    private ParsedShard parseShard(URL shard) {
+
+        long start = System.nanoTime();
+
+        try (InputStream xmlStream = shard.openStream()) {
+
+            List<Car> cars = xmlParser.parse(xmlStream);
+
+            return new ParsedShard(cars, new ShardResult(shard.toString(), cars.size(), System.nanoTime() - start, null));
+
+        } catch (Exception e) {
+
+            return new ParsedShard(List.of(), new ShardResult(shard.toString(), 0, System.nanoTime() - start, String.valueOf(e.getMessage())));
+        }
+    }
+
+    private List<BrandInfo> parseBrands(URL brands) throws IOException, CsvValidationException {
+
+        try (InputStream csvStream = brands.openStream()) {
+
+            return csvParser.parse(csvStream);
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws IOException, InterruptedException {
+
+        try {
+
+            return future.get();
+
+        } catch (ExecutionException e) {
+
+            if (e.getCause() instanceof IOException io) { throw io; }
+
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
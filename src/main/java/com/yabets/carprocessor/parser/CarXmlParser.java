@@ -3,81 +3,249 @@ package com.yabets.carprocessor.parser;
 import com.yabets.carprocessor.model.Car;
 import com.yabets.carprocessor.model.Price;
 import com.yabets.carprocessor.model.Prices;
-import jakarta.xml.bind.JAXBContext;
-import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Unmarshaller;
-import jakarta.xml.bind.annotation.XmlAccessType;
-import jakarta.xml.bind.annotation.XmlAccessorType;
-import jakarta.xml.bind.annotation.XmlElement;
-import jakarta.xml.bind.annotation.XmlRootElement;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 public class CarXmlParser {
     private static final Logger LOGGER = Logger.getLogger(CarXmlParser.class.getName());
 
-    // Temporary class to handle the standalone <price currency="USD"> element
-    @XmlRootElement(name = "car")
-    @XmlAccessorType(XmlAccessType.FIELD)
-    private static class RawCar {
+    private static final long DEFAULT_PROGRESS_INTERVAL = 100_000;
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
 
-        @XmlElement
-        private String type;
-        @XmlElement
-        private String model;
-        @XmlElement(name = "price")
-        private Price usdPrice;
-        @XmlElement
-        private Prices prices;
+    // Snapshot of a running parse, handed to the progress listener
+    public record Progress(long rows, long bytesRead, long elapsedNanos) {
 
-        public Car toCar() {
+        public double rowsPerSecond() {
+            return elapsedNanos > 0 ? rows * 1_000_000_000.0 / elapsedNanos : 0.0;
+        }
+    }
 
-            Prices combinedPrices = new Prices();
-            List<Price> priceList = prices != null && prices.getPrices() != null ? prices.getPrices() : new ArrayList<>();
+    private final Consumer<Progress> progressListener;
+    private final long progressInterval;
 
-            if (usdPrice != null && usdPrice.currency() != null && usdPrice.value() != null) {
+    public CarXmlParser() {
+        this(CarXmlParser::logProgress, DEFAULT_PROGRESS_INTERVAL);
+    }
 
-                priceList.add(0, usdPrice); // Add USD price first
-            }
+    public CarXmlParser(Consumer<Progress> progressListener, long progressInterval) {
 
-            combinedPrices.setPrices(priceList);
+        if (progressInterval <= 0) {
 
-            return new Car(type, model, combinedPrices, null, null);
+            throw new IllegalArgumentException("Progress interval must be positive: " + progressInterval);
         }
+
+        this.progressListener = progressListener;
+        this.progressInterval = progressInterval;
     }
 
-    @XmlRootElement(name = "cars")
-    @XmlAccessorType(XmlAccessType.FIELD)
-    private static class RawCars {
+    public List<Car> parse(InputStream xmlStream) throws XMLStreamException {
+
+        List<Car> cars = new ArrayList<>();
+        parse(xmlStream, cars::add);
 
-        @XmlElement(name = "car")
-        private List<RawCar> cars;
+        return cars;
     }
 
-    public List<Car> parse(InputStream xmlStream) throws JAXBException {
+    // Pulls one <car> at a time off the stream so memory stays bounded by a single record
+    public long parse(InputStream xmlStream, Consumer<Car> consumer) throws XMLStreamException {
+
+        CountingInputStream countingStream = new CountingInputStream(xmlStream);
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(countingStream);
+
+        long start = System.nanoTime();
+        long rows = 0;
 
         try {
 
-            JAXBContext context = JAXBContext.newInstance(RawCars.class);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            RawCars rawCars = (RawCars) unmarshaller.unmarshal(xmlStream);
+            while (reader.hasNext()) {
 
-            return rawCars.cars.stream()
-                    .map(RawCar::toCar)
-                    .collect(Collectors.toList());
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("car")) {
 
-        } catch (JAXBException e) {
+                    consumer.accept(readCar(reader));
+                    rows++;
 
-            LOGGER.severe("JAXB parsing error: " + e.getMessage());
+                    if (rows % progressInterval == 0) {
 
-            if (e.getLinkedException() != null) {
-                LOGGER.severe("Details: " + e.getLinkedException().getMessage());
+                        progressListener.accept(new Progress(rows, countingStream.count(), System.nanoTime() - start));
+                    }
+                }
             }
 
+        } catch (XMLStreamException e) {
+
+            LOGGER.severe("StAX parsing error after " + rows + " cars: " + e.getMessage());
+
             throw e;
+
+        } finally {
+
+            reader.close();
+        }
+
+        Progress done = new Progress(rows, countingStream.count(), System.nanoTime() - start);
+
+        LOGGER.fine(String.format("Parsed %d cars in %.1f ms (%.0f rows/s, %d bytes read)",
+                done.rows(), done.elapsedNanos() / 1_000_000.0, done.rowsPerSecond(), done.bytesRead()));
+
+        return rows;
+    }
+
+    // Merges the standalone <price currency="USD"> in front of the <prices> list
+    private Car readCar(XMLStreamReader reader) throws XMLStreamException {
+
+        String type = null;
+        String model = null;
+        Price usdPrice = null;
+        List<Price> priceList = new ArrayList<>();
+
+        // Every child is consumed whole, so the first END_ELEMENT seen here is </car>
+        while (reader.next() != XMLStreamConstants.END_ELEMENT) {
+
+            if (reader.getEventType() != XMLStreamConstants.START_ELEMENT) { continue; }
+
+            switch (reader.getLocalName()) {
+                case "type" -> type = reader.getElementText();
+                case "model" -> model = reader.getElementText();
+                case "price" -> usdPrice = readPrice(reader);
+                case "prices" -> priceList = readPrices(reader);
+                default -> skipElement(reader);
+            }
+        }
+
+        if (usdPrice != null && usdPrice.currency() != null && usdPrice.value() != null) {
+
+            priceList.add(0, usdPrice); // Add USD price first
+        }
+
+        Prices combinedPrices = new Prices();
+        combinedPrices.setPrices(priceList);
+
+        return new Car(type, model, combinedPrices, null, null);
+    }
+
+    private List<Price> readPrices(XMLStreamReader reader) throws XMLStreamException {
+
+        List<Price> prices = new ArrayList<>();
+
+        while (reader.next() != XMLStreamConstants.END_ELEMENT) {
+
+            if (reader.getEventType() != XMLStreamConstants.START_ELEMENT) { continue; }
+
+            if (reader.getLocalName().equals("price")) {
+
+                prices.add(readPrice(reader));
+
+            } else {
+
+                skipElement(reader);
+            }
+        }
+
+        return prices;
+    }
+
+    private Price readPrice(XMLStreamReader reader) throws XMLStreamException {
+
+        String currency = reader.getAttributeValue(null, "currency");
+        String text = reader.getElementText().trim();
+
+        Double value = null;
+
+        try {
+
+            value = Double.valueOf(text);
+
+        } catch (NumberFormatException e) {
+
+            LOGGER.warning("Ignoring invalid price '" + text + "' for currency " + currency + " at line " + reader.getLocation().getLineNumber());
+        }
+
+        return new Price(currency, value);
+    }
+
+    private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+
+        int depth = 1;
+
+        while (depth > 0) {
+
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT) {
+
+                depth++;
+
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+
+                depth--;
+            }
+        }
+    }
+
+    private static void logProgress(Progress progress) {
+
+        LOGGER.info(String.format("Parsed %d cars (%.0f rows/s, %d bytes read)",
+                progress.rows(), progress.rowsPerSecond(), progress.bytesRead()));
+    }
+
+    private static XMLInputFactory createInputFactory() {
+
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        return factory;
+    }
+
+    // Tracks how many bytes the StAX reader has pulled from the underlying stream
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long count() { return count; }
+
+        @Override
+        public int read() throws IOException {
+
+            int b = super.read();
+
+            if (b >= 0) { count++; }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+
+            int n = super.read(buffer, offset, length);
+
+            if (n > 0) { count += n; }
+
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+
+            long skipped = super.skip(n);
+            count += skipped;
+
+            return skipped;
         }
     }
 }
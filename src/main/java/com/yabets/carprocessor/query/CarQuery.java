@@ -0,0 +1,213 @@
+package com.yabets.carprocessor.query;
+
+import com.yabets.carprocessor.filter.CarFilter;
+import com.yabets.carprocessor.sorter.CarSorter;
+import com.yabets.carprocessor.store.CarStore;
+import com.yabets.carprocessor.store.RowExecutor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Predicates in disjunctive normal form (OR of AND-groups), then an optional sort and limit,
+// evaluated as one pass over the rows without intermediate selections
+public class CarQuery {
+
+    public static final int NO_LIMIT = -1;
+
+    private final List<List<CarFilter>> groups;
+    private final CarSorter sorter;
+    private final int limit;
+
+    public CarQuery(List<List<CarFilter>> groups, CarSorter sorter, int limit) {
+
+        // Cheapest predicates first within each group, so a failing row is rejected early
+        this.groups = groups.stream()
+                .map(group -> group.stream().sorted(Comparator.comparingInt(CarFilter::cost)).toList())
+                .toList();
+        this.sorter = sorter;
+        this.limit = limit;
+    }
+
+    public static CarQuery of(CarFilter filter) {
+        return new CarQuery(List.of(List.of(filter)), null, NO_LIMIT);
+    }
+
+    public static CarQuery of(CarSorter sorter) {
+        return new CarQuery(List.of(), sorter, NO_LIMIT);
+    }
+
+    public List<List<CarFilter>> groups() { return groups; }
+    public CarSorter sorter() { return sorter; }
+    public int limit() { return limit; }
+
+    // Canonical form of the whole query, used to key cached results
+    public String describe() {
+
+        StringBuilder description = new StringBuilder();
+
+        if (!groups.isEmpty()) {
+
+            description.append("where ").append(groups.stream()
+                    .map(group -> group.stream().map(CarFilter::describe).collect(Collectors.joining(" and ")))
+                    .collect(Collectors.joining(" or ")));
+        }
+
+        if (sorter != null) {
+
+            description.append(description.isEmpty() ? "" : " ").append("sort ").append(sorter.describe());
+        }
+
+        if (limit != NO_LIMIT) {
+
+            description.append(description.isEmpty() ? "" : " ").append("limit ").append(limit);
+        }
+
+        return description.toString();
+    }
+
+    public int[] execute(CarStore store) {
+        return execute(store, RowExecutor.SEQUENTIAL);
+    }
+
+    public int[] execute(CarStore store, RowExecutor executor) {
+
+        IntStream presorted = sorter != null ? sorter.presorted(store) : null;
+        int[] rows;
+
+        if (presorted != null) {
+
+            // Walk the sorter's index and test each row on the way, so a limit ends the pass early
+            IntPredicate matcher = bind(store, groups);
+            IntStream matched = matcher != null ? presorted.filter(matcher) : presorted;
+
+            rows = (limit != NO_LIMIT ? matched.limit(limit) : matched).toArray();
+
+        } else if (sorter == null) {
+
+            rows = candidates(store, executor, limit != NO_LIMIT ? limit : store.size());
+
+        } else {
+
+            int[] matched = candidates(store, executor, store.size());
+
+            rows = sorter.sort(store, matched, limit != NO_LIMIT ? limit : matched.length, executor);
+        }
+
+        return rows;
+    }
+
+    // How execute() will run against this store, in words
+    public String plan(CarStore store, RowExecutor executor) {
+
+        StringBuilder plan = new StringBuilder();
+
+        if (sorter != null && sorter.presorted(store) != null) {
+
+            plan.append("walk the sort ").append(sorter.describe()).append(" index");
+
+            if (!groups.isEmpty()) { plan.append(", testing each row"); }
+            if (limit != NO_LIMIT) { plan.append(", stopping after ").append(limit).append(" matches"); }
+
+            return plan.toString();
+        }
+
+        CarFilter driver = driver();
+
+        if (groups.isEmpty()) {
+
+            plan.append("take all rows");
+
+        } else if (driver != null) {
+
+            plan.append("look up ").append(driver.describe()).append(" in its index");
+
+            if (groups.get(0).size() > 1) { plan.append(", then test the other predicates"); }
+
+        } else {
+
+            plan.append(executor.isParallel(store.size()) ? "scan all rows in parallel" : "scan all rows");
+            plan.append(groups.size() > 1 ? ", testing " + groups.size() + " OR-groups" : ", testing each row");
+        }
+
+        if (sorter != null) {
+
+            plan.append(limit != NO_LIMIT ? ", then select the top " + limit + " by " : ", then sort by ").append(sorter.describe());
+
+        } else if (limit != NO_LIMIT) {
+
+            plan.append(", keeping the first ").append(limit).append(" matches");
+        }
+
+        return plan.toString();
+    }
+
+    // The indexed predicate a single AND-group is driven by, or null when the rows are scanned
+    CarFilter driver() {
+
+        if (groups.size() != 1) { return null; }
+
+        return groups.get(0).stream().filter(CarFilter::indexed).findFirst().orElse(null);
+    }
+
+    // Matching rows in row order; a single AND-group is driven by its first indexed predicate
+    private int[] candidates(CarStore store, RowExecutor executor, int limit) {
+
+        CarFilter driver = driver();
+
+        if (driver != null) {
+
+            List<CarFilter> rest = new ArrayList<>(groups.get(0));
+            rest.remove(driver);
+
+            IntPredicate matcher = bind(store, rest.isEmpty() ? List.of() : List.of(rest));
+            int[] driven = driver.filter(store, executor);
+
+            if (matcher != null) { return executor.filter(driven, matcher, limit); }
+
+            return driven.length > limit ? Arrays.copyOf(driven, limit) : driven;
+        }
+
+        IntPredicate matcher = bind(store, groups);
+
+        return executor.filter(store.size(), matcher != null ? matcher : row -> true, limit);
+    }
+
+    // Null when there are no predicates, so callers can skip the test entirely
+    private static IntPredicate bind(CarStore store, List<List<CarFilter>> groups) {
+
+        if (groups.isEmpty()) { return null; }
+
+        IntPredicate[][] bound = new IntPredicate[groups.size()][];
+
+        for (int g = 0; g < bound.length; g++) {
+
+            bound[g] = groups.get(g).stream().map(filter -> filter.bind(store)).toArray(IntPredicate[]::new);
+        }
+
+        return row -> {
+
+            for (IntPredicate[] group : bound) {
+
+                boolean all = true;
+
+                for (IntPredicate predicate : group) {
+
+                    if (!predicate.test(row)) {
+
+                        all = false;
+                        break;
+                    }
+                }
+
+                if (all) { return true; }
+            }
+
+            return false;
+        };
+    }
+}
@@ -0,0 +1,135 @@
+package com.yabets.carprocessor.query;
+
+import com.yabets.carprocessor.filter.CarFilter;
+import com.yabets.carprocessor.filter.RejectReason;
+import com.yabets.carprocessor.store.CarStore;
+import com.yabets.carprocessor.store.RowExecutor;
+import com.yabets.carprocessor.store.Rows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+// Runs a query one stage at a time for the explain command: each predicate over every row that reaches it,
+// then the sort and limit. execute() interleaves the same stages in one pass, so only explain pays for the counters.
+public final class QueryExplain {
+
+    // rejected holds one count per RejectReason, by ordinal
+    public record Stage(String name, int examined, int passed, long nanos, int[] rejected) {
+    }
+
+    // rows are the result of the normal execution, timed as executeNanos
+    public record Explanation(String plan, List<Stage> stages, int[] rows, long executeNanos) {
+    }
+
+    private QueryExplain() {
+    }
+
+    public static Explanation explain(CarQuery query, CarStore store, RowExecutor executor) {
+
+        List<Stage> stages = new ArrayList<>();
+        int[] matched = Rows.all(store.size());
+
+        if (!query.groups().isEmpty()) {
+
+            boolean[] selected = new boolean[store.size()];
+            int[] remaining = matched;
+
+            // A row only reaches a later OR-group when every earlier one rejected it
+            for (int g = 0; g < query.groups().size(); g++) {
+
+                String prefix = query.groups().size() > 1 ? "[or " + (g + 1) + "] " : "";
+                int[] rows = remaining;
+
+                // The predicate execute() looks up in its index goes first, as it does there
+                List<CarFilter> group = new ArrayList<>(query.groups().get(g));
+
+                if (group.remove(query.driver())) { group.add(0, query.driver()); }
+
+                for (CarFilter filter : group) {
+
+                    rows = filterStage(prefix + filter.describe(), filter, rows, store, stages);
+                }
+
+                for (int row : rows) { selected[row] = true; }
+
+                remaining = RowExecutor.SEQUENTIAL.filter(remaining, row -> !selected[row]);
+            }
+
+            matched = RowExecutor.SEQUENTIAL.filter(store.size(), row -> selected[row]);
+        }
+
+        int limit = query.limit() != CarQuery.NO_LIMIT ? Math.min(query.limit(), matched.length) : matched.length;
+
+        if (query.sorter() != null) {
+
+            long start = System.nanoTime();
+            int[] sorted = query.sorter().sort(store, matched, limit, RowExecutor.SEQUENTIAL);
+
+            stages.add(new Stage("sort " + query.sorter().describe(), matched.length, sorted.length, System.nanoTime() - start, noRejects()));
+
+        } else if (limit < matched.length) {
+
+            stages.add(new Stage("limit " + query.limit(), matched.length, limit, 0, noRejects()));
+        }
+
+        // The real plan, uncached, for comparison with the staged timings
+        long start = System.nanoTime();
+        int[] rows = query.execute(store, executor);
+        long executeNanos = System.nanoTime() - start;
+
+        return new Explanation(query.plan(store, executor), stages, rows, executeNanos);
+    }
+
+    // Times the predicate alone, then looks up reasons for the rows it rejected only
+    private static int[] filterStage(String name, CarFilter filter, int[] rows, CarStore store, List<Stage> stages) {
+
+        long start = System.nanoTime();
+
+        IntPredicate predicate = filter.bind(store);
+        int[] passed = RowExecutor.SEQUENTIAL.filter(rows, predicate);
+
+        long nanos = System.nanoTime() - start;
+
+        IntFunction<RejectReason> reasons = filter.rejectReasons(store);
+        int[] rejected = noRejects();
+        int next = 0;
+
+        // passed keeps the order of rows, so one merge walk finds the rejected ones
+        for (int row : rows) {
+
+            if (next < passed.length && passed[next] == row) {
+
+                next++;
+                continue;
+            }
+
+            RejectReason reason = reasons.apply(row);
+            rejected[(reason != null ? reason : RejectReason.NO_MATCH).ordinal()]++;
+        }
+
+        stages.add(new Stage(name, rows.length, passed.length, nanos, rejected));
+
+        return passed;
+    }
+
+    private static int[] noRejects() {
+        return new int[RejectReason.values().length];
+    }
+
+    // "brand mismatch 7, price out of range 1", or empty when nothing was rejected
+    public static String rejectSummary(int[] rejected) {
+
+        StringBuilder summary = new StringBuilder();
+
+        for (RejectReason reason : RejectReason.values()) {
+
+            if (rejected[reason.ordinal()] == 0) { continue; }
+
+            summary.append(summary.isEmpty() ? "" : ", ").append(reason.label()).append(' ').append(rejected[reason.ordinal()]);
+        }
+
+        return summary.toString();
+    }
+}
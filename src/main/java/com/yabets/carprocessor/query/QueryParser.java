@@ -0,0 +1,225 @@
+package com.yabets.carprocessor.query;
+
+import com.yabets.carprocessor.filter.AttributeFilter;
+import com.yabets.carprocessor.filter.BrandPriceFilter;
+import com.yabets.carprocessor.filter.BrandReleaseDateFilter;
+import com.yabets.carprocessor.filter.CarFilter;
+import com.yabets.carprocessor.sorter.CarSorter;
+import com.yabets.carprocessor.sorter.CurrencyPolicy;
+import com.yabets.carprocessor.sorter.CurrencyTypeSorter;
+import com.yabets.carprocessor.sorter.PriceSorter;
+import com.yabets.carprocessor.sorter.ReleaseYearSorter;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// Parses: query [where <predicate> [and|or <predicate>]...] [sort <order>] [limit <n>]
+// AND binds tighter than OR. Values may span several words, up to the next keyword.
+public class QueryParser {
+
+    public static final String USAGE = "Usage: query [where <predicate> [and|or <predicate>]...] [sort <year|price <currency>|currency-type>] [limit <n>]";
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+    private static final Set<String> KEYWORDS = Set.of("and", "or", "sort", "limit");
+
+    // Type -> currency table of every currency-type sort, set once at startup
+    private static CurrencyPolicy currencyPolicy = CurrencyPolicy.DEFAULT;
+
+    private final String[] parts;
+    private final String usage;
+    private int position;
+
+    public QueryParser(String[] parts, int position) {
+        this(parts, position, USAGE);
+    }
+
+    // Usage is appended to error messages, so commands reusing parts of the grammar can pass their own
+    public QueryParser(String[] parts, int position, String usage) {
+
+        this.parts = parts;
+        this.usage = usage;
+        this.position = position;
+    }
+
+    public static void setCurrencyPolicy(CurrencyPolicy policy) {
+        currencyPolicy = policy;
+    }
+
+    public CarQuery parse() {
+
+        List<List<CarFilter>> groups = new ArrayList<>();
+        CarSorter sorter = null;
+        int limit = CarQuery.NO_LIMIT;
+
+        if (accept("where")) {
+
+            List<CarFilter> group = new ArrayList<>();
+            group.add(parsePredicate());
+
+            while (peek("and") || peek("or")) {
+
+                if (parts[position++].equalsIgnoreCase("or")) {
+
+                    groups.add(group);
+                    group = new ArrayList<>();
+                }
+
+                group.add(parsePredicate());
+            }
+
+            groups.add(group);
+        }
+
+        if (accept("sort")) {
+
+            sorter = parseSorter();
+        }
+
+        if (accept("limit")) {
+
+            limit = parseLimit();
+        }
+
+        expectEnd();
+
+        return new CarQuery(groups, sorter, limit);
+    }
+
+    // <year|price <currency>|currency-type>
+    public CarSorter parseSorter() {
+
+        String type = next("sort type");
+
+        if (type.equalsIgnoreCase("year")) {
+
+            return new ReleaseYearSorter();
+
+        } else if (type.equalsIgnoreCase("price")) {
+
+            return new PriceSorter(next("currency").toUpperCase());
+
+        } else if (type.equalsIgnoreCase("currency-type")) {
+
+            return new CurrencyTypeSorter(currencyPolicy);
+        }
+
+        throw new IllegalArgumentException("Invalid sort type: " + type);
+    }
+
+    public int parseLimit() {
+
+        String value = next("limit");
+
+        try {
+
+            int limit = Integer.parseInt(value);
+
+            if (limit < 0) {
+
+                throw new IllegalArgumentException("Limit must not be negative: " + value);
+            }
+
+            return limit;
+
+        } catch (NumberFormatException e) {
+
+            throw new IllegalArgumentException("Invalid limit: " + value);
+        }
+    }
+
+    public boolean accept(String keyword) {
+
+        if (peek(keyword)) {
+
+            position++;
+            return true;
+        }
+
+        return false;
+    }
+
+    public void expectEnd() {
+
+        if (position < parts.length) {
+
+            throw new IllegalArgumentException("Unexpected token '" + parts[position] + "'. " + usage);
+        }
+    }
+
+    private CarFilter parsePredicate() {
+
+        String field = next("predicate").toLowerCase();
+
+        return switch (field) {
+            case "brand" -> new AttributeFilter(AttributeFilter.Attribute.BRAND, nextValue(field));
+            case "type" -> new AttributeFilter(AttributeFilter.Attribute.TYPE, nextValue(field));
+            case "model" -> new AttributeFilter(AttributeFilter.Attribute.MODEL, nextValue(field));
+            case "price" -> {
+
+                String currency = next("currency").toUpperCase();
+                double minPrice = parseDouble(next("min-price"));
+                double maxPrice = parseDouble(next("max-price"));
+
+                yield new BrandPriceFilter(null, minPrice, maxPrice, currency);
+            }
+            case "date" -> new BrandReleaseDateFilter(null, parseDate(next("start-date")), parseDate(next("end-date")));
+            default -> throw new IllegalArgumentException("Invalid predicate: " + field + ". Expected brand, type, model, price or date");
+        };
+    }
+
+    // Joins words up to the next keyword, so multi-word values like "Model X" work unquoted
+    private String nextValue(String field) {
+
+        StringBuilder value = new StringBuilder(next(field));
+
+        while (position < parts.length && !KEYWORDS.contains(parts[position].toLowerCase())) {
+
+            value.append(' ').append(parts[position++]);
+        }
+
+        return value.toString();
+    }
+
+    private String next(String expected) {
+
+        if (position >= parts.length) {
+
+            throw new IllegalArgumentException("Missing " + expected + ". " + usage);
+        }
+
+        return parts[position++];
+    }
+
+    private boolean peek(String keyword) {
+        return position < parts.length && parts[position].equalsIgnoreCase(keyword);
+    }
+
+    private static double parseDouble(String value) {
+
+        try {
+
+            return Double.parseDouble(value);
+
+        } catch (NumberFormatException e) {
+
+            throw new IllegalArgumentException("Invalid price: " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+
+        try {
+
+            return LocalDate.parse(value, DATE_FORMATTER);
+
+        } catch (DateTimeParseException e) {
+
+            throw new IllegalArgumentException("Invalid date format: " + e.getMessage() + ". Expected MM/dd/yyyy");
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.yabets.carprocessor.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.yabets.carprocessor.output.OutputFormatter;
+import com.yabets.carprocessor.query.CarQuery;
+import com.yabets.carprocessor.store.CarStore;
+import com.yabets.carprocessor.util.Utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+// Read-only HTTP front end for the query commands; every request runs on its own virtual thread
+public class CarQueryServer {
+
+    private static final Logger LOGGER = Logger.getLogger(CarQueryServer.class.getName());
+
+    // Pending connections the kernel queues while every handler is busy
+    private static final int BACKLOG = 4096;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Supplier<CarStore> store;
+
+    // store is read once per request, so a reload swapping it never splits a response across datasets
+    public CarQueryServer(InetSocketAddress address, Supplier<CarStore> store) throws IOException {
+
+        this.store = store;
+
+        server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(executor);
+
+        server.createContext("/filter/", exchange -> handle(exchange, this::filterCommand));
+        server.createContext("/sort/", exchange -> handle(exchange, this::sortCommand));
+        server.createContext("/query", exchange -> handle(exchange, this::queryCommand));
+        server.createContext("/cars", exchange -> handle(exchange, (path, params) -> null));
+    }
+
+    public void start() {
+
+        server.start();
+
+        LOGGER.info("Serving car queries on " + server.getAddress());
+    }
+
+    // Waits up to delaySeconds for running requests before closing connections
+    public void stop(int delaySeconds) {
+
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    // Builds the CLI command for a request; null means every car, unfiltered
+    @FunctionalInterface
+    private interface CommandMapper {
+        String[] map(String path, Map<String, String> params);
+    }
+
+    private void handle(HttpExchange exchange, CommandMapper mapper) throws IOException {
+
+        try (exchange) {
+
+            if (!exchange.getRequestMethod().equals("GET")) {
+
+                sendText(exchange, 405, "Only GET is supported");
+                return;
+            }
+
+            CarStore snapshot = store.get();
+            Map<String, String> params = parseParams(exchange.getRequestURI().getRawQuery());
+            String format = params.getOrDefault("format", "json");
+
+            OutputFormatter formatter;
+            int[] rows;
+
+            try {
+
+                formatter = OutputFormatter.forFormat(format);
+
+                String[] command = mapper.map(exchange.getRequestURI().getPath(), params);
+                rows = command != null ? Utils.execute(Utils.parseQuery(command), snapshot) : null;
+
+            } catch (IllegalArgumentException e) {
+
+                sendText(exchange, 400, e.getMessage());
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", contentType(format));
+            exchange.getResponseHeaders().set("X-Row-Count", String.valueOf(rows != null ? rows.length : snapshot.size()));
+
+            // Length 0 selects chunked encoding, so rows go out as they are rendered
+            exchange.sendResponseHeaders(200, 0);
+
+            Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), OutputFormatter.BUFFER_SIZE);
+            formatter.write(rows != null ? snapshot.cars(rows) : snapshot.cars(), writer);
+            writer.flush();
+
+        } catch (RuntimeException e) {
+
+            // Headers may already be out, so the client only sees a cut-off response
+            LOGGER.warning("Request " + exchange.getRequestURI() + " failed: " + e.getMessage());
+        }
+    }
+
+    // /filter/brand-price?brand=&min=&max=&currency= and /filter/brand-date?brand=&start=&end=
+    private String[] filterCommand(String path, Map<String, String> params) {
+
+        String type = path.substring("/filter/".length());
+        String brand = params.getOrDefault("brand", "null");
+
+        if (brand.isEmpty()) { brand = "null"; }
+
+        if (type.equalsIgnoreCase("brand-price")) {
+
+            return new String[] {"filter", type, brand, required(params, "min"), required(params, "max"), required(params, "currency")};
+
+        } else if (type.equalsIgnoreCase("brand-date")) {
+
+            return new String[] {"filter", type, brand, required(params, "start"), required(params, "end")};
+        }
+
+        throw new IllegalArgumentException("Invalid filter type: " + type);
+    }
+
+    // /sort/year, /sort/price?currency=, /sort/currency-type, each with an optional limit=
+    private String[] sortCommand(String path, Map<String, String> params) {
+
+        List<String> command = new ArrayList<>(List.of("sort", path.substring("/sort/".length())));
+
+        if (command.get(1).equalsIgnoreCase("price")) {
+
+            command.add(required(params, "currency"));
+        }
+
+        if (params.containsKey("limit")) {
+
+            command.add("limit");
+            command.add(params.get("limit"));
+        }
+
+        return command.toArray(new String[0]);
+    }
+
+    // /query?q=where brand Toyota sort year limit 5, in the syntax of the query command
+    private String[] queryCommand(String path, Map<String, String> params) {
+
+        String query = params.getOrDefault("q", "").trim();
+
+        return query.isEmpty() ? new String[] {"query"} : ("query " + query).split("\\s+");
+    }
+
+    private static String required(Map<String, String> params, String name) {
+
+        String value = params.get(name);
+
+        if (value == null || value.isBlank()) {
+
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+
+        return value.trim();
+    }
+
+    private static Map<String, String> parseParams(String rawQuery) {
+
+        Map<String, String> params = new HashMap<>();
+
+        if (rawQuery == null || rawQuery.isEmpty()) { return params; }
+
+        for (String pair : rawQuery.split("&")) {
+
+            int equals = pair.indexOf('=');
+            String name = equals >= 0 ? pair.substring(0, equals) : pair;
+            String value = equals >= 0 ? pair.substring(equals + 1) : "";
+
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+
+        return params;
+    }
+
+    private static String contentType(String format) {
+
+        return switch (format.toLowerCase()) {
+            case "json" -> "application/json; charset=utf-8";
+            case "xml" -> "application/xml; charset=utf-8";
+            default -> "text/plain; charset=utf-8";
+        };
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String message) throws IOException {
+
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+
+            out.write(body);
+        }
+    }
+}
@@ -1,9 +1,44 @@
 package com.yabets.carprocessor.sorter;
 
-import com.yabets.carprocessor.model.Car;
+import com.yabets.carprocessor.store.CarStore;
+import com.yabets.carprocessor.store.RowComparator;
+import com.yabets.carprocessor.store.RowExecutor;
 
-import java.util.List;
+import java.util.stream.IntStream;
 
+// The ordering stage of a CarQuery; sort() runs it on its own
 public interface CarSorter {
-    List<Car> sort(List<Car> cars);
-}
\ No newline at end of file
+
+    // Canonical form, equal for equivalent sorters whatever the input casing
+    String describe();
+
+    // Row comparator bound to the store; resolve lookups here, not per comparison
+    RowComparator comparator(CarStore store);
+
+    // Returns the given row ids in sorted order; ties keep their incoming order
+    default int[] sort(CarStore store, int[] rows) {
+        return sort(store, rows, rows.length, RowExecutor.SEQUENTIAL);
+    }
+
+    // The first limit rows of sort(store, rows), without sorting the rest
+    default int[] sort(CarStore store, int[] rows, int limit) {
+        return sort(store, rows, limit, RowExecutor.SEQUENTIAL);
+    }
+
+    // Large inputs are merge sorted or top-K reduced on the executor's pool, with the same result
+    default int[] sort(CarStore store, int[] rows, int limit, RowExecutor executor) {
+
+        if (limit < rows.length) {
+
+            return executor.topK(rows, limit, comparator(store));
+        }
+
+        int[] sorted = rows.clone();
+        executor.sort(sorted, comparator(store));
+
+        return sorted;
+    }
+
+    // Every row already in sorted order, for sorters backed by an index; null otherwise
+    default IntStream presorted(CarStore store) { return null; }
+}
@@ -0,0 +1,88 @@
+package com.yabets.carprocessor.sorter;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Which currency's price CurrencyTypeSorter ranks each car type by; types are matched ignoring case,
+// and types not in the table use the fallback currency
+public final class CurrencyPolicy {
+
+    public static final CurrencyPolicy DEFAULT = parse("SUV=EUR,Sedan=JPY,Truck=USD,*=USD");
+
+    private final Map<String, String> currencies; // lowercase type -> uppercase currency
+    private final String fallback;
+
+    private CurrencyPolicy(Map<String, String> currencies, String fallback) {
+
+        this.currencies = Collections.unmodifiableMap(currencies);
+        this.fallback = fallback;
+    }
+
+    // type=currency pairs separated by commas, e.g. SUV=EUR,Sedan=JPY,*=USD; * sets the fallback (default: USD)
+    public static CurrencyPolicy parse(String spec) {
+
+        Map<String, String> currencies = new LinkedHashMap<>();
+        String fallback = "USD";
+
+        for (String entry : spec.split(",")) {
+
+            String[] pair = entry.split("=", -1);
+
+            if (pair.length != 2 || pair[0].isBlank() || !pair[1].trim().matches("[A-Za-z]{3}")) {
+
+                throw new IllegalArgumentException("Invalid currency policy entry: '" + entry.trim() + "', expected <type>=<currency>");
+            }
+
+            String type = pair[0].trim().toLowerCase(Locale.ROOT);
+            String currency = pair[1].trim().toUpperCase(Locale.ROOT).intern(); // Same instances as Car's codes
+
+            if (type.equals("*")) {
+
+                fallback = currency;
+
+            } else if (currencies.putIfAbsent(type, currency) != null) {
+
+                throw new IllegalArgumentException("Duplicate currency policy entry for type: " + pair[0].trim());
+            }
+        }
+
+        return new CurrencyPolicy(currencies, fallback);
+    }
+
+    public String currencyFor(String type) {
+        return type != null ? currencies.getOrDefault(type.toLowerCase(Locale.ROOT), fallback) : fallback;
+    }
+
+    // Every currency the policy can pick, fallback included
+    public Set<String> currencies() {
+
+        Set<String> all = new LinkedHashSet<>(currencies.values());
+        all.add(fallback);
+
+        return all;
+    }
+
+    // Canonical form: lowercase types in table order, then the fallback
+    public String describe() {
+
+        StringBuilder text = new StringBuilder();
+
+        currencies.forEach((type, currency) -> text.append(type).append('=').append(currency).append(','));
+
+        return text.append("*=").append(fallback).toString();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof CurrencyPolicy that && currencies.equals(that.currencies) && fallback.equals(that.fallback);
+    }
+
+    @Override
+    public int hashCode() {
+        return currencies.hashCode() * 31 + fallback.hashCode();
+    }
+}
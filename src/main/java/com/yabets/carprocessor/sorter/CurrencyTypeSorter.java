@@ -1,29 +1,57 @@
 package com.yabets.carprocessor.sorter;
 
-import com.yabets.carprocessor.model.Car;
+import com.yabets.carprocessor.currency.ExchangeRates;
+import com.yabets.carprocessor.store.CarStore;
+import com.yabets.carprocessor.store.PriceColumn;
+import com.yabets.carprocessor.store.RowComparator;
+
+// Highest price first, each car priced in the currency its type maps to under the policy. When every
+// currency involved has a rate, prices are compared as their value in the rates' reference currency;
+// otherwise the amounts are compared as they are
+public class CurrencyTypeSorter implements CarSorter {
 
-import java.util.Comparator;
-import java.util.List;
-import java.util.stream.Collectors;
+    private final CurrencyPolicy policy;
 
-public class CurrencyTypeSorter implements CarSorter {
+    public CurrencyTypeSorter() {
+        this(CurrencyPolicy.DEFAULT);
+    }
+
+    public CurrencyTypeSorter(CurrencyPolicy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    public String describe() {
+        return policy.equals(CurrencyPolicy.DEFAULT) ? "currency-type" : "currency-type " + policy.describe();
+    }
 
     @Override
-    public List<Car> sort(List<Car> cars) {
+    public RowComparator comparator(CarStore store) {
+
+        ExchangeRates rates = store.rates();
+        String[] currencies = new String[store.types().size()];
+        boolean convert = true;
+
+        for (int code = 0; code < currencies.length; code++) {
+
+            currencies[code] = policy.currencyFor(store.types().decode(code));
+            convert &= rates.has(currencies[code]);
+        }
+
+        // Walk each type's bitmap once to resolve every row's sort price up front
+        double[] keys = new double[store.size()];
 
-        return cars.stream()
-                .sorted(Comparator.comparing(car -> {
+        for (int code = 0; code < currencies.length; code++) {
 
-                    String currency = switch (car.type()) {
+            PriceColumn prices = store.normalizedPrices(currencies[code]);
+            double scale = convert ? 1 / rates.rate(currencies[code]) : 1;
 
-                        case "SUV" -> "EUR";
-                        case "Sedan" -> "JPY";
-                        case "Truck" -> "USD";
-                        default -> "USD";
-                    };
+            for (int row : store.typeIndex().forCode(code).toArray()) {
 
-                    return car.getPriceMap().getOrDefault(currency, 0.0);
+                keys[row] = prices != null && prices.isPresent(row) ? prices.value(row) * scale : PriceColumn.MISSING;
+            }
+        }
 
-                }, Comparator.reverseOrder())).collect(Collectors.toList());
+        return (a, b) -> Double.compare(keys[b], keys[a]);
     }
-}
\ No newline at end of file
+}
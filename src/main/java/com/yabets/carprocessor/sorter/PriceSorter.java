@@ -1,11 +1,17 @@
 package com.yabets.carprocessor.sorter;
 
-import com.yabets.carprocessor.model.Car;
+import com.yabets.carprocessor.index.PriceIndex;
+import com.yabets.carprocessor.store.CarStore;
+import com.yabets.carprocessor.store.PriceColumn;
+import com.yabets.carprocessor.store.RowComparator;
+import com.yabets.carprocessor.store.RowExecutor;
+import com.yabets.carprocessor.store.Rows;
 
-import java.util.Comparator;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Arrays;
+import java.util.stream.IntStream;
 
+// Highest price in the currency first, comparing each car's price normalized to it, so cars priced
+// only in other currencies are ranked by their converted price
 public class PriceSorter implements CarSorter {
     private final String currency;
 
@@ -14,13 +20,46 @@ public class PriceSorter implements CarSorter {
     }
 
     @Override
-    public List<Car> sort(List<Car> cars) {
-
-        return cars.stream()
-                .sorted(Comparator.comparing(
-                        car -> car.getPriceMap().getOrDefault(currency, Double.MAX_VALUE),
-                        Comparator.reverseOrder()
-                ))
-                .collect(Collectors.toList());
+    public String describe() {
+        return "price " + currency;
+    }
+
+    @Override
+    public RowComparator comparator(CarStore store) {
+
+        PriceColumn prices = store.normalizedPrices(currency);
+
+        if (prices == null) { return (a, b) -> 0; } // No car has a price: every car ties
+
+        // Cars without a price, even after conversion, sort last
+        return (a, b) -> Double.compare(
+                prices.valueOrDefault(b, PriceColumn.MISSING),
+                prices.valueOrDefault(a, PriceColumn.MISSING));
+    }
+
+    @Override
+    public IntStream presorted(CarStore store) {
+
+        PriceIndex priceIndex = store.normalizedPriceIndex(currency);
+
+        return priceIndex != null ? priceIndex.stream() : IntStream.range(0, store.size());
+    }
+
+    @Override
+    public int[] sort(CarStore store, int[] rows, int limit, RowExecutor executor) {
+
+        PriceIndex priceIndex = store.normalizedPriceIndex(currency);
+
+        if (priceIndex == null) { return Arrays.copyOf(rows, Math.min(limit, rows.length)); }
+
+        // The index breaks ties by row id, which matches a stable sort only for ascending input
+        if (Rows.isAscending(rows)) {
+
+            return rows.length == store.size()
+                    ? priceIndex.stream().limit(limit).toArray()
+                    : priceIndex.order(rows, limit);
+        }
+
+        return CarSorter.super.sort(store, rows, limit, executor);
     }
 }
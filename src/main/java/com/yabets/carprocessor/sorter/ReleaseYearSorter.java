@@ -1,19 +1,45 @@
 package com.yabets.carprocessor.sorter;
 
-import com.yabets.carprocessor.model.Car;
+import com.yabets.carprocessor.index.ReleaseDateIndex;
+import com.yabets.carprocessor.store.CarStore;
+import com.yabets.carprocessor.store.RowComparator;
+import com.yabets.carprocessor.store.RowExecutor;
+import com.yabets.carprocessor.store.Rows;
 
-import java.time.LocalDate;
-import java.util.Comparator;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class ReleaseYearSorter implements CarSorter {
 
     @Override
-    public List<Car> sort(List<Car> cars) {
+    public String describe() {
+        return "year";
+    }
+
+    @Override
+    public RowComparator comparator(CarStore store) {
+
+        // NO_DATE is below every real epoch day, so cars without a date end up last
+        return (a, b) -> Integer.compare(store.releaseDay(b), store.releaseDay(a));
+    }
+
+    @Override
+    public IntStream presorted(CarStore store) {
+        return store.releaseDateIndex().stream();
+    }
+
+    @Override
+    public int[] sort(CarStore store, int[] rows, int limit, RowExecutor executor) {
+
+        ReleaseDateIndex dateIndex = store.releaseDateIndex();
+
+        // The index breaks ties by row id, which matches a stable sort only for ascending input
+        if (Rows.isAscending(rows)) {
+
+            return rows.length == store.size()
+                    ? dateIndex.stream().limit(limit).toArray()
+                    : dateIndex.order(rows, limit);
+        }
 
-        return cars.stream()
-                .sorted(Comparator.comparing(car -> car.releaseDate() != null ? car.releaseDate() : LocalDate.MIN, Comparator.reverseOrder()))
-                .collect(Collectors.toList());
+        return CarSorter.super.sort(store, rows, limit, executor);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,537 @@
+package com.yabets.carprocessor.store;
+
+import com.yabets.carprocessor.currency.ExchangeRates;
+import com.yabets.carprocessor.index.PriceIndex;
+import com.yabets.carprocessor.index.ReleaseDateIndex;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.zip.CRC32;
+
+// Versioned binary image of a joined CarStore: a header and metadata (dictionaries, rates, section
+// sizes), then the store's columns and its price and release date indexes as 8-byte aligned
+// little-endian sections, then a CRC32 of everything before it. Loading maps each section in chunks
+// of at most 1 GB and builds the store as views over them, so nothing is parsed, sorted or copied
+// to the heap; cars are built from the columns only when a row is read.
+public final class CarSnapshot {
+
+    private static final int MAGIC = 0x43415253; // "CARS"
+    private static final int VERSION = 2;
+
+    // magic, version, source fingerprint, row count
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+    private static final int CHECKSUM_SIZE = 8;
+
+    // The checksum pass maps the file a window at a time
+    private static final long CHECKSUM_WINDOW = 1L << 30;
+
+    private CarSnapshot() {
+    }
+
+    // Cheap identity of the source files: name, size and modification time, no content read;
+    // settings folds in anything else that changes the loaded rows
+    public static long fingerprint(List<URL> sources, long settings) throws IOException {
+
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+
+        buffer.putLong(settings);
+        crc.update(buffer.flip());
+
+        for (URL source : sources) {
+
+            URLConnection connection = source.openConnection();
+            connection.setUseCaches(false);
+
+            crc.update(source.toExternalForm().getBytes(StandardCharsets.UTF_8));
+
+            buffer.clear();
+            buffer.putLong(connection.getContentLengthLong()).putLong(connection.getLastModified());
+            crc.update(buffer.flip());
+
+            connection.getInputStream().close(); // Releases jar handles opened by the connection
+        }
+
+        return crc.getValue();
+    }
+
+    // Written to a sibling temp file and moved into place, so readers never see a partial snapshot
+    public static void save(CarStore store, long fingerprint, Path file) throws IOException {
+
+        Path absolute = file.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+
+        try {
+
+            try (SectionWriter out = new SectionWriter(FileChannel.open(temp, StandardOpenOption.WRITE))) {
+
+                writeBody(store, fingerprint, out);
+
+                // The trailing checksum covers every byte before it
+                out.putLong(out.checksum());
+            }
+
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } finally {
+
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Throws when the file is corrupt, from another format version, or built from other sources.
+    // The checksum is one sequential pass over the mapped file; the mappings stay valid after the
+    // channel is closed, and for as long as the store is reachable
+    public static CarStore load(Path file, long fingerprint) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            long size = channel.size();
+
+            if (size < HEADER_SIZE + CHECKSUM_SIZE) {
+
+                throw new IOException("Invalid snapshot size: " + size + " bytes");
+            }
+
+            // The header and metadata sit at the start; one mapping of up to 2 GB covers them
+            ByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size - CHECKSUM_SIZE, Integer.MAX_VALUE))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+
+            if (head.getInt() != MAGIC) {
+
+                throw new IOException("Not a car snapshot: " + file);
+            }
+
+            int version = head.getInt();
+
+            if (version != VERSION) {
+
+                throw new IOException("Unsupported snapshot version " + version + " (expected " + VERSION + ")");
+            }
+
+            if (head.getLong() != fingerprint) {
+
+                throw new IOException("Snapshot is stale: source files changed since it was saved");
+            }
+
+            if (checksum(channel, size - CHECKSUM_SIZE) != readChecksum(channel, size - CHECKSUM_SIZE)) {
+
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+
+            return readStore(channel, head, size - CHECKSUM_SIZE);
+
+        } catch (RuntimeException e) {
+
+            // Buffer underflows and bad sizes only surface on a damaged file the checksum missed
+            throw new IOException("Corrupt snapshot " + file + ": " + e, e);
+        }
+    }
+
+    private static void writeBody(CarStore store, long fingerprint, SectionWriter out) throws IOException {
+
+        int size = store.size();
+        List<String> currencies = new ArrayList<>(store.priceColumns().keySet());
+        CarStore.PriceLists priceLists = store.priceLists();
+
+        ReleaseDateIndex releaseDateIndex = store.releaseDateIndex();
+
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putLong(fingerprint);
+        out.putInt(size);
+
+        writeDictionary(store.types(), out);
+        writeDictionary(store.models(), out);
+        writeDictionary(store.brands(), out);
+        writeDictionary(priceLists.currencies(), out); // Codes in the order of currencies
+
+        // The rates the normalized columns below were computed with
+        out.putInt(store.rates().rates().size());
+
+        for (Map.Entry<String, Double> rate : store.rates().rates().entrySet()) {
+
+            writeString(rate.getKey(), out);
+            out.putDouble(rate.getValue());
+        }
+
+        out.putInt(priceLists.codes().length());
+        out.putInt(releaseDateIndex.distinctDays());
+        out.putInt(releaseDateIndex.buckets());
+
+        // Per currency, whether its normalized prices differ from its own and follow as sections of their own
+        for (String currency : currencies) {
+
+            out.putInt(store.normalizedPrices(currency) != store.priceColumn(currency) ? 1 : 0);
+        }
+
+        writeInts(out, size, store::typeCode);
+        writeInts(out, size, store::modelCode);
+        writeInts(out, size, store::brandCode);
+        writeInts(out, size, store::releaseDay);
+
+        // Each car's prices in source order, as offsets into flat currency code and value sections
+        writeInts(out, size + 1, priceLists.starts()::get);
+        writeInts(out, priceLists.codes().length(), priceLists.codes()::get);
+        out.align();
+
+        for (int i = 0; i < priceLists.values().length(); i++) {
+
+            out.putDouble(priceLists.values().get(i));
+        }
+
+        for (IntColumn column : releaseDateIndex.columns()) {
+
+            writeInts(out, column.length(), column::get);
+        }
+
+        for (String currency : currencies) {
+
+            writePrices(out, store.priceIndex(currency));
+        }
+
+        for (String currency : currencies) {
+
+            if (store.normalizedPrices(currency) != store.priceColumn(currency)) {
+
+                writePrices(out, store.normalizedPriceIndex(currency));
+            }
+        }
+    }
+
+    // A price column and its index: values, presence words, order and sort keys
+    private static void writePrices(SectionWriter out, PriceIndex index) throws IOException {
+
+        DoubleColumn values = index.prices().values();
+        LongColumn present = index.prices().present();
+        IntColumn order = index.orderColumn();
+        DoubleColumn keys = index.sortedKeys();
+
+        out.align();
+
+        for (int i = 0; i < values.length(); i++) { out.putDouble(values.get(i)); }
+        for (int i = 0; i < present.length(); i++) { out.putLong(present.get(i)); }
+        for (int i = 0; i < order.length(); i++) { out.putInt(order.get(i)); }
+
+        out.align();
+
+        for (int i = 0; i < keys.length(); i++) { out.putDouble(keys.get(i)); }
+    }
+
+    private static void writeInts(SectionWriter out, int count, IntUnaryOperator values) throws IOException {
+
+        out.align();
+
+        for (int i = 0; i < count; i++) {
+
+            out.putInt(values.applyAsInt(i));
+        }
+    }
+
+    private static CarStore readStore(FileChannel channel, ByteBuffer head, long end) throws IOException {
+
+        int size = head.getInt();
+
+        StringDictionary types = readDictionary(head);
+        StringDictionary models = readDictionary(head);
+        StringDictionary brands = readDictionary(head);
+        StringDictionary currencies = readDictionary(head);
+
+        Map<String, Double> rateTable = new LinkedHashMap<>();
+        int rateCount = head.getInt();
+
+        for (int i = 0; i < rateCount; i++) {
+
+            rateTable.put(readString(head), head.getDouble());
+        }
+
+        int priceCount = head.getInt();
+        int dayCount = head.getInt();
+        int bucketCount = head.getInt();
+        boolean[] separate = new boolean[currencies.size()];
+
+        for (int code = 0; code < separate.length; code++) {
+
+            separate[code] = head.getInt() != 0;
+        }
+
+        Sections sections = new Sections(channel, head.position());
+
+        IntColumn typeCodes = sections.ints(size);
+        IntColumn modelCodes = sections.ints(size);
+        IntColumn brandCodes = sections.ints(size);
+        IntColumn releaseDays = sections.ints(size);
+        IntColumn priceStarts = sections.ints(size + 1);
+        IntColumn priceCurrencies = sections.ints(priceCount);
+        DoubleColumn priceValues = sections.doubles(priceCount);
+
+        ReleaseDateIndex releaseDateIndex = new ReleaseDateIndex(sections.ints(size), sections.ints(dayCount),
+                sections.ints(dayCount + 1), sections.ints(bucketCount), sections.ints(bucketCount + 1));
+
+        Map<String, PriceColumn> priceColumns = new LinkedHashMap<>();
+        Map<String, PriceIndex> priceIndexes = new LinkedHashMap<>();
+        Map<String, PriceIndex> normalizedIndexes = new LinkedHashMap<>();
+
+        for (int code = 0; code < currencies.size(); code++) {
+
+            PriceIndex index = sections.prices(currencies.decode(code), size);
+
+            priceColumns.put(index.currency(), index.prices());
+            priceIndexes.put(index.currency(), index);
+            normalizedIndexes.put(index.currency(), index);
+        }
+
+        for (int code = 0; code < currencies.size(); code++) {
+
+            if (separate[code]) { normalizedIndexes.put(currencies.decode(code), sections.prices(currencies.decode(code), size)); }
+        }
+
+        if (sections.position != end) {
+
+            throw new IOException("Snapshot sections end at byte " + sections.position + ", expected " + end);
+        }
+
+        CarStore.PriceLists priceLists = new CarStore.PriceLists(currencies, priceStarts, priceCurrencies, priceValues);
+
+        return new CarStore(ExchangeRates.of(rateTable), types, models, brands, typeCodes, modelCodes, brandCodes,
+                releaseDays, priceLists, priceColumns, priceIndexes, releaseDateIndex, normalizedIndexes);
+    }
+
+    private static long checksum(FileChannel channel, long length) throws IOException {
+
+        CRC32 crc = new CRC32();
+
+        for (long position = 0; position < length; position += CHECKSUM_WINDOW) {
+
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHECKSUM_WINDOW, length - position)));
+        }
+
+        return crc.getValue();
+    }
+
+    private static long readChecksum(FileChannel channel, long position) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, CHECKSUM_SIZE).order(ByteOrder.LITTLE_ENDIAN).getLong();
+    }
+
+    // Codes are written in order, so reading them back restores the same code for each value
+    private static void writeDictionary(StringDictionary dictionary, SectionWriter out) throws IOException {
+
+        out.putInt(dictionary.size());
+
+        for (int code = 0; code < dictionary.size(); code++) {
+
+            writeString(dictionary.decode(code), out);
+        }
+    }
+
+    private static StringDictionary readDictionary(ByteBuffer buffer) {
+
+        StringDictionary dictionary = new StringDictionary();
+        int size = buffer.getInt();
+
+        for (int code = 0; code < size; code++) {
+
+            dictionary.encode(readString(buffer));
+        }
+
+        return dictionary;
+    }
+
+    // Length-prefixed UTF-8; a length of -1 stands for null
+    private static void writeString(String value, SectionWriter out) throws IOException {
+
+        if (value == null) {
+
+            out.putInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putInt(bytes.length);
+        out.putBytes(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+
+        int length = buffer.getInt();
+
+        if (length < 0) { return null; }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8).intern(); // Same instances as parsed cars' codes
+    }
+
+    // Walks the sections in the order writeBody wrote them, mapping each one in chunks
+    private static final class Sections {
+
+        private final FileChannel channel;
+        private long position;
+
+        Sections(FileChannel channel, long position) {
+
+            this.channel = channel;
+            this.position = position;
+        }
+
+        IntColumn ints(int count) throws IOException {
+            return IntColumn.mapped(map(count, Integer.BYTES, ByteBuffer::asIntBuffer, IntBuffer[]::new), count);
+        }
+
+        DoubleColumn doubles(int count) throws IOException {
+            return DoubleColumn.mapped(map(count, Double.BYTES, ByteBuffer::asDoubleBuffer, DoubleBuffer[]::new), count);
+        }
+
+        LongColumn longs(int count) throws IOException {
+            return LongColumn.mapped(map(count, Long.BYTES, ByteBuffer::asLongBuffer, LongBuffer[]::new), count);
+        }
+
+        PriceIndex prices(String currency, int size) throws IOException {
+
+            PriceColumn prices = new PriceColumn(currency, doubles(size), longs((size + 63) >>> 6));
+            IntColumn order = ints(size);
+
+            return new PriceIndex(prices, order, doubles(size));
+        }
+
+        private <B extends Buffer> B[] map(int count, int width, Function<ByteBuffer, B> view,
+                                           IntFunction<B[]> arrays) throws IOException {
+
+            position = align(position);
+
+            int chunkSize = 1 << IntColumn.CHUNK_SHIFT;
+            B[] chunks = arrays.apply((int) ((count + (long) chunkSize - 1) >>> IntColumn.CHUNK_SHIFT));
+
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+
+                int elements = Math.min(chunkSize, count - chunk * chunkSize);
+
+                chunks[chunk] = view.apply(channel.map(FileChannel.MapMode.READ_ONLY, position, (long) elements * width)
+                        .order(ByteOrder.LITTLE_ENDIAN));
+                position += (long) elements * width;
+            }
+
+            return chunks;
+        }
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    // Buffers little-endian writes to the channel, keeping the running checksum and the file position
+    private static final class SectionWriter implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+        private long position;
+
+        SectionWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+
+            reserve(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+
+            reserve(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+
+            reserve(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+
+            for (int offset = 0; offset < bytes.length; ) {
+
+                reserve(1);
+
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                position += length - 1;
+                offset += length;
+            }
+        }
+
+        // Pads with zeros up to the next 8-byte boundary, where every section starts
+        void align() throws IOException {
+
+            while (position % 8 != 0) {
+
+                reserve(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        // Checksum of everything written so far
+        long checksum() throws IOException {
+
+            flush();
+            return crc.getValue();
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            try {
+
+                flush();
+
+            } finally {
+
+                channel.close();
+            }
+        }
+
+        private void reserve(int bytes) throws IOException {
+
+            if (buffer.remaining() < bytes) { flush(); }
+
+            position += bytes;
+        }
+
+        private void flush() throws IOException {
+
+            buffer.flip();
+            crc.update(buffer.duplicate());
+
+            while (buffer.hasRemaining()) {
+
+                channel.write(buffer);
+            }
+
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.yabets.carprocessor.store;
+
+import com.yabets.carprocessor.currency.ExchangeRates;
+import com.yabets.carprocessor.index.BitmapIndex;
+import com.yabets.carprocessor.index.PriceIndex;
+import com.yabets.carprocessor.index.ReleaseDateIndex;
+import com.yabets.carprocessor.model.Car;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Immutable column-oriented copy of the joined dataset; filters and sorters work on row ids. No Car
+// objects are kept: car(row) builds one from the columns for the output paths that need it
+public final class CarStore {
+
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
+    // Stores built later have higher generations, so a reload's store is always newer than the one it replaces
+    private final long generation = GENERATIONS.incrementAndGet();
+
+    private final int size;
+
+    private final StringDictionary types;
+    private final StringDictionary models;
+    private final StringDictionary brands;
+
+    private final IntColumn typeCodes;
+    private final IntColumn modelCodes;
+    private final IntColumn brandCodes;
+    private final IntColumn releaseDays;
+
+    // Each car's own prices in source order, which conversion and output follow
+    private final PriceLists priceLists;
+
+    private final Map<String, PriceColumn> priceColumns;
+
+    private final BitmapIndex typeIndex;
+    private final BitmapIndex brandIndex;
+    private final Map<String, PriceIndex> priceIndexes;
+    private final ReleaseDateIndex releaseDateIndex;
+
+    private final ExchangeRates rates;
+
+    // Every car's price in one base currency, with its index; computed up front for the currencies the
+    // cars carry and on first use for other currencies the rates know, so comparisons never convert
+    private final Map<String, NormalizedPrices> normalized = new ConcurrentHashMap<>();
+
+    private record NormalizedPrices(PriceColumn prices, PriceIndex index) {
+    }
+
+    // Cached for a base no car has a price for, so the next lookup does not scan the cars again
+    private static final NormalizedPrices NO_PRICES = new NormalizedPrices(null, null);
+
+    // Row r's prices are entries [starts[r], starts[r + 1]) of codes and values; codes index currencies,
+    // whose order is that of priceColumns
+    record PriceLists(StringDictionary currencies, IntColumn starts, IntColumn codes, DoubleColumn values) {
+    }
+
+    public CarStore(List<Car> cars) {
+        this(cars, ExchangeRates.NONE);
+    }
+
+    public CarStore(List<Car> cars, ExchangeRates rates) {
+
+        this.size = cars.size();
+        this.rates = rates;
+
+        types = new StringDictionary();
+        models = new StringDictionary();
+        brands = new StringDictionary();
+        priceColumns = new LinkedHashMap<>();
+        priceIndexes = new LinkedHashMap<>();
+
+        StringDictionary currencies = new StringDictionary();
+        int[] typeCodes = new int[size];
+        int[] modelCodes = new int[size];
+        int[] brandCodes = new int[size];
+        int[] releaseDays = new int[size];
+        int[] priceStarts = new int[size + 1];
+
+        for (int row = 0; row < size; row++) {
+
+            priceStarts[row + 1] = Math.addExact(priceStarts[row], cars.get(row).currencyCount());
+        }
+
+        int[] priceCodes = new int[priceStarts[size]];
+        double[] priceValues = new double[priceStarts[size]];
+
+        for (int row = 0; row < size; row++) {
+
+            Car car = cars.get(row);
+
+            typeCodes[row] = types.encode(car.type());
+            modelCodes[row] = models.encode(car.model());
+            brandCodes[row] = brands.encode(car.brand());
+            releaseDays[row] = car.releaseDate() != null ? toDay(car.releaseDate()) : NO_DATE;
+
+            for (int i = 0; i < car.currencyCount(); i++) {
+
+                priceCodes[priceStarts[row] + i] = currencies.encode(car.currency(i));
+                priceValues[priceStarts[row] + i] = car.price(i);
+
+                priceColumns.computeIfAbsent(car.currency(i), currency -> new PriceColumn(currency, size))
+                        .set(row, car.price(i));
+            }
+        }
+
+        this.typeCodes = IntColumn.of(typeCodes);
+        this.modelCodes = IntColumn.of(modelCodes);
+        this.brandCodes = IntColumn.of(brandCodes);
+        this.releaseDays = IntColumn.of(releaseDays);
+        this.priceLists = new PriceLists(currencies, IntColumn.of(priceStarts), IntColumn.of(priceCodes), DoubleColumn.of(priceValues));
+
+        // Built with the columns, so a reload that builds a new store rebuilds them too
+        typeIndex = new BitmapIndex(types, this.typeCodes);
+        brandIndex = new BitmapIndex(brands, this.brandCodes);
+
+        for (PriceColumn prices : priceColumns.values()) {
+
+            priceIndexes.put(prices.currency(), new PriceIndex(prices, size));
+        }
+
+        releaseDateIndex = new ReleaseDateIndex(releaseDays);
+
+        normalizeAll();
+    }
+
+    // Over columns and indexes a snapshot already holds: only the bitmap indexes are built, in one pass
+    // over the codes. normalizedIndexes has an entry for every currency in priceColumns, computed under rates
+    CarStore(ExchangeRates rates, StringDictionary types, StringDictionary models, StringDictionary brands,
+             IntColumn typeCodes, IntColumn modelCodes, IntColumn brandCodes, IntColumn releaseDays, PriceLists priceLists,
+             Map<String, PriceColumn> priceColumns, Map<String, PriceIndex> priceIndexes, ReleaseDateIndex releaseDateIndex,
+             Map<String, PriceIndex> normalizedIndexes) {
+
+        this.size = typeCodes.length();
+        this.rates = rates;
+        this.types = types;
+        this.models = models;
+        this.brands = brands;
+        this.typeCodes = typeCodes;
+        this.modelCodes = modelCodes;
+        this.brandCodes = brandCodes;
+        this.releaseDays = releaseDays;
+        this.priceLists = priceLists;
+        this.priceColumns = priceColumns;
+        this.priceIndexes = priceIndexes;
+        this.releaseDateIndex = releaseDateIndex;
+
+        typeIndex = new BitmapIndex(types, typeCodes);
+        brandIndex = new BitmapIndex(brands, brandCodes);
+
+        normalizedIndexes.forEach((base, index) -> normalized.put(base, new NormalizedPrices(index.prices(), index)));
+    }
+
+    // Shares every column and index with source, only the normalized prices are computed again
+    private CarStore(CarStore source, ExchangeRates rates) {
+
+        this.size = source.size;
+        this.rates = rates;
+
+        types = source.types;
+        models = source.models;
+        brands = source.brands;
+        typeCodes = source.typeCodes;
+        modelCodes = source.modelCodes;
+        brandCodes = source.brandCodes;
+        releaseDays = source.releaseDays;
+        priceLists = source.priceLists;
+        priceColumns = source.priceColumns;
+        typeIndex = source.typeIndex;
+        brandIndex = source.brandIndex;
+        priceIndexes = source.priceIndexes;
+        releaseDateIndex = source.releaseDateIndex;
+
+        normalizeAll();
+    }
+
+    // The same cars priced under other rates; a new store, so caches keyed by the store start over.
+    // Equal rates would normalize every price the same way, so this store is returned as is
+    public CarStore withRates(ExchangeRates newRates) {
+        return newRates.equals(rates) ? this : new CarStore(this, newRates);
+    }
+
+    public ExchangeRates rates() {
+        return rates;
+    }
+
+    public long generation() {
+        return generation;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // A new Car on every call, built from the row's columns
+    public Car car(int row) {
+
+        int from = priceLists.starts().get(row);
+        String[] currencies = new String[priceLists.starts().get(row + 1) - from];
+        double[] values = new double[currencies.length];
+
+        // Taken from normalized cars, so the codes are already uppercase and distinct
+        for (int i = 0; i < currencies.length; i++) {
+
+            currencies[i] = priceLists.currencies().decode(priceLists.codes().get(from + i));
+            values[i] = priceLists.values().get(from + i);
+        }
+
+        int releaseDay = releaseDays.get(row);
+        LocalDate releaseDate = releaseDay != NO_DATE ? LocalDate.ofEpochDay(releaseDay) : null;
+
+        return new Car(types.decode(typeCodes.get(row)), models.decode(modelCodes.get(row)), currencies, values,
+                brands.decode(brandCodes.get(row)), releaseDate);
+    }
+
+    // View of the selected rows, in selection order; cars are built as they are read
+    public List<Car> cars(int[] rows) {
+        return new RowList(rows);
+    }
+
+    public List<Car> cars() {
+        return new RowList(null);
+    }
+
+    PriceLists priceLists() {
+        return priceLists;
+    }
+
+    public StringDictionary types() { return types; }
+    public StringDictionary models() { return models; }
+    public StringDictionary brands() { return brands; }
+
+    public BitmapIndex typeIndex() { return typeIndex; }
+    public BitmapIndex brandIndex() { return brandIndex; }
+
+    public ReleaseDateIndex releaseDateIndex() { return releaseDateIndex; }
+
+    public int typeCode(int row) { return typeCodes.get(row); }
+    public int modelCode(int row) { return modelCodes.get(row); }
+    public int brandCode(int row) { return brandCodes.get(row); }
+
+    // Epoch day of the brand release date, or NO_DATE when the brand had none
+    public int releaseDay(int row) { return releaseDays.get(row); }
+
+    public static int toDay(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    // Null when no car carries a price in the currency
+    public PriceColumn priceColumn(String currency) {
+        return priceColumns.get(currency);
+    }
+
+    // Null when no car carries a price in the currency
+    public PriceIndex priceIndex(String currency) {
+        return priceIndexes.get(currency);
+    }
+
+    public Map<String, PriceColumn> priceColumns() {
+        return Collections.unmodifiableMap(priceColumns);
+    }
+
+    // Each car's own price in base where it has one, otherwise its first price that converts to base;
+    // null when no car has either
+    public PriceColumn normalizedPrices(String base) {
+
+        NormalizedPrices prices = normalized(base);
+
+        return prices != null ? prices.prices() : null;
+    }
+
+    // Highest normalized price first; null when normalizedPrices(base) is
+    public PriceIndex normalizedPriceIndex(String base) {
+
+        NormalizedPrices prices = normalized(base);
+
+        return prices != null ? prices.index() : null;
+    }
+
+    private NormalizedPrices normalized(String base) {
+
+        NormalizedPrices prices = normalized.get(base);
+
+        if (prices != null || !rates.has(base)) {
+
+            return prices;
+        }
+
+        return normalized.computeIfAbsent(base, this::normalize);
+    }
+
+    private void normalizeAll() {
+
+        for (String currency : priceColumns.keySet()) {
+
+            normalized.put(currency, normalize(currency));
+        }
+    }
+
+    // Without a rate for base, or when no car needs converting, the currency's own column and index serve as is;
+    // the normalized column is only allocated at the first car that does
+    private NormalizedPrices normalize(String base) {
+
+        PriceColumn own = priceColumns.get(base);
+        NormalizedPrices ownPrices = own != null ? new NormalizedPrices(own, priceIndexes.get(base)) : NO_PRICES;
+
+        if (!rates.has(base)) { return ownPrices; }
+
+        PriceColumn prices = null;
+        double[] factors = new double[priceLists.currencies().size()];
+
+        for (int code = 0; code < factors.length; code++) {
+
+            factors[code] = rates.factor(priceLists.currencies().decode(code), base);
+        }
+
+        for (int row = 0; row < size(); row++) {
+
+            if (own != null && own.isPresent(row)) { continue; }
+
+            double value = convert(row, factors);
+
+            if (Double.isNaN(value)) { continue; }
+
+            if (prices == null) { prices = own != null ? own.copy() : new PriceColumn(base, size()); }
+
+            prices.set(row, value);
+        }
+
+        return prices == null ? ownPrices : new NormalizedPrices(prices, new PriceIndex(prices, size()));
+    }
+
+    // The first of the row's prices, in source order, whose currency has a rate (a factor per currency code);
+    // NaN when none has
+    private double convert(int row, double[] factors) {
+
+        for (int i = priceLists.starts().get(row); i < priceLists.starts().get(row + 1); i++) {
+
+            double factor = factors[priceLists.codes().get(i)];
+
+            if (!Double.isNaN(factor)) { return priceLists.values().get(i) * factor; }
+        }
+
+        return Double.NaN;
+    }
+
+    private class RowList extends AbstractList<Car> implements RandomAccess {
+
+        private final int[] rows; // Null for every row in order
+
+        RowList(int[] rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public Car get(int index) {
+            return car(rows != null ? rows[index] : Objects.checkIndex(index, size));
+        }
+
+        @Override
+        public int size() {
+            return rows != null ? rows.length : size;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.yabets.carprocessor.store;
+
+import java.nio.DoubleBuffer;
+
+// Doubles, held like IntColumn's ints; set() only works on a heap column, while its store is being built
+public final class DoubleColumn {
+
+    private final double[] array;
+    private final DoubleBuffer[] chunks;
+    private final int length;
+
+    private DoubleColumn(double[] array, DoubleBuffer[] chunks, int length) {
+
+        this.array = array;
+        this.chunks = chunks;
+        this.length = length;
+    }
+
+    // Wraps the array without copying it
+    public static DoubleColumn of(double[] values) {
+        return new DoubleColumn(values, null, values.length);
+    }
+
+    static DoubleColumn mapped(DoubleBuffer[] chunks, int length) {
+        return new DoubleColumn(null, chunks, length);
+    }
+
+    public double get(int index) {
+        return array != null ? array[index] : chunks[index >>> IntColumn.CHUNK_SHIFT].get(index & IntColumn.CHUNK_MASK);
+    }
+
+    void set(int index, double value) {
+        array[index] = value;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    // A heap copy, whichever way this column is held
+    DoubleColumn copy() {
+
+        double[] values = new double[length];
+
+        for (int i = 0; i < length; i++) {
+
+            values[i] = get(i);
+        }
+
+        return of(values);
+    }
+}
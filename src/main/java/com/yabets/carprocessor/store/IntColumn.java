@@ -0,0 +1,63 @@
+package com.yabets.carprocessor.store;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Read-only ints, held in a heap array or in the memory-mapped chunks of a snapshot section
+public final class IntColumn {
+
+    // Elements per mapped chunk; a power of two, so a lookup is a shift and a mask
+    static final int CHUNK_SHIFT = 27;
+    static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    private final int[] array;
+    private final IntBuffer[] chunks;
+    private final int length;
+
+    private IntColumn(int[] array, IntBuffer[] chunks, int length) {
+
+        this.array = array;
+        this.chunks = chunks;
+        this.length = length;
+    }
+
+    // Wraps the array without copying it
+    public static IntColumn of(int[] values) {
+        return new IntColumn(values, null, values.length);
+    }
+
+    static IntColumn mapped(IntBuffer[] chunks, int length) {
+        return new IntColumn(null, chunks, length);
+    }
+
+    public int get(int index) {
+        return array != null ? array[index] : chunks[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public IntStream stream() {
+        return array != null ? IntStream.of(array) : IntStream.range(0, length).map(this::get);
+    }
+
+    public int[] toArray() {
+        return toArray(0, length);
+    }
+
+    public int[] toArray(int from, int to) {
+
+        if (array != null) { return Arrays.copyOfRange(array, from, to); }
+
+        int[] values = new int[to - from];
+
+        for (int i = from; i < to; i++) {
+
+            values[i - from] = get(i);
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,52 @@
+package com.yabets.carprocessor.store;
+
+import java.nio.LongBuffer;
+
+// Longs such as PriceColumn's presence words, held like IntColumn's ints; or() needs a heap column
+public final class LongColumn {
+
+    private final long[] array;
+    private final LongBuffer[] chunks;
+    private final int length;
+
+    private LongColumn(long[] array, LongBuffer[] chunks, int length) {
+
+        this.array = array;
+        this.chunks = chunks;
+        this.length = length;
+    }
+
+    // Wraps the array without copying it
+    public static LongColumn of(long[] values) {
+        return new LongColumn(values, null, values.length);
+    }
+
+    static LongColumn mapped(LongBuffer[] chunks, int length) {
+        return new LongColumn(null, chunks, length);
+    }
+
+    public long get(int index) {
+        return array != null ? array[index] : chunks[index >>> IntColumn.CHUNK_SHIFT].get(index & IntColumn.CHUNK_MASK);
+    }
+
+    void or(int index, long bits) {
+        array[index] |= bits;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    // A heap copy, whichever way this column is held
+    LongColumn copy() {
+
+        long[] values = new long[length];
+
+        for (int i = 0; i < length; i++) {
+
+            values[i] = get(i);
+        }
+
+        return of(values);
+    }
+}
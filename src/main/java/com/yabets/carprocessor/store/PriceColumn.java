@@ -0,0 +1,53 @@
+package com.yabets.carprocessor.store;
+
+// Primitive prices of one currency, with a bitmap marking rows that have a price
+public class PriceColumn {
+
+    // Sort key of a row without a price: below every real price, so descending orders put it last
+    public static final double MISSING = Double.NEGATIVE_INFINITY;
+
+    private final String currency;
+    private final DoubleColumn values;
+    private final LongColumn present;
+
+    PriceColumn(String currency, int size) {
+        this(currency, DoubleColumn.of(new double[size]), LongColumn.of(new long[(size + 63) >>> 6]));
+    }
+
+    // Over existing columns, e.g. the mapped sections of a snapshot
+    PriceColumn(String currency, DoubleColumn values, LongColumn present) {
+
+        this.currency = currency;
+        this.values = values;
+        this.present = present;
+    }
+
+    // Same prices in a column of its own, so more can be set without touching this one
+    PriceColumn copy() {
+        return new PriceColumn(currency, values.copy(), present.copy());
+    }
+
+    void set(int row, double value) {
+
+        values.set(row, value);
+        present.or(row >>> 6, 1L << row);
+    }
+
+    DoubleColumn values() { return values; }
+    LongColumn present() { return present; }
+
+    public String currency() { return currency; }
+
+    public boolean isPresent(int row) {
+        return (present.get(row >>> 6) & (1L << row)) != 0;
+    }
+
+    // Only meaningful when isPresent(row) is true
+    public double value(int row) {
+        return values.get(row);
+    }
+
+    public double valueOrDefault(int row, double defaultValue) {
+        return isPresent(row) ? values.get(row) : defaultValue;
+    }
+}
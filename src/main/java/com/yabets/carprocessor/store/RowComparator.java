@@ -0,0 +1,7 @@
+package com.yabets.carprocessor.store;
+
+@FunctionalInterface
+public interface RowComparator {
+
+    int compare(int rowA, int rowB);
+}
@@ -0,0 +1,266 @@
+package com.yabets.carprocessor.store;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+
+// Runs row filters and sorts on a ForkJoinPool once the input passes a size threshold.
+// Results are identical to the sequential path: filters merge their pieces in row order,
+// and the merge sort and top-K are stable, so ties come out exactly as they went in.
+public class RowExecutor {
+
+    public static final int DEFAULT_THRESHOLD = 100_000;
+
+    public static final RowExecutor SEQUENTIAL = new RowExecutor(null, Integer.MAX_VALUE);
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    public RowExecutor(ForkJoinPool pool, int threshold) {
+
+        if (threshold < 1) {
+
+            throw new IllegalArgumentException("Parallel threshold must be positive: " + threshold);
+        }
+
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    public static RowExecutor parallel(int threads, int threshold) {
+        return new RowExecutor(new ForkJoinPool(threads), threshold);
+    }
+
+    public int threshold() {
+        return threshold;
+    }
+
+    public int parallelism() {
+        return pool != null ? pool.getParallelism() : 1;
+    }
+
+    public boolean isParallel(int size) {
+        return pool != null && size >= threshold;
+    }
+
+    // Rows 0..size-1 passing the predicate, in row order
+    public int[] filter(int size, IntPredicate predicate) {
+        return filter(null, size, predicate, size);
+    }
+
+    public int[] filter(int size, IntPredicate predicate, int limit) {
+        return filter(null, size, predicate, limit);
+    }
+
+    // Rows of the selection passing the predicate, in selection order
+    public int[] filter(int[] rows, IntPredicate predicate) {
+        return filter(rows, rows.length, predicate, rows.length);
+    }
+
+    public int[] filter(int[] rows, IntPredicate predicate, int limit) {
+        return filter(rows, rows.length, predicate, limit);
+    }
+
+    // In-place stable sort
+    public void sort(int[] rows, RowComparator comparator) {
+
+        if (!isParallel(rows.length)) {
+
+            Rows.sort(rows, comparator);
+            return;
+        }
+
+        int[] buffer = rows.clone();
+        pool.invoke(new SortTask(buffer, rows, 0, rows.length, comparator));
+    }
+
+    // The first k rows of a stable sort; chunks are reduced in parallel, then merged in input order
+    public int[] topK(int[] rows, int k, RowComparator comparator) {
+
+        if (!isParallel(rows.length) || k >= rows.length) {
+
+            if (k >= rows.length) {
+
+                int[] sorted = rows.clone();
+                sort(sorted, comparator);
+
+                return sorted;
+            }
+
+            return Rows.topK(rows, k, comparator);
+        }
+
+        return pool.invoke(new TopKTask(rows, 0, rows.length, k, comparator));
+    }
+
+    private int[] filter(int[] rows, int size, IntPredicate predicate, int limit) {
+
+        if (!isParallel(size)) {
+
+            return scan(rows, 0, size, predicate, limit);
+        }
+
+        int[] matched = pool.invoke(new FilterTask(rows, 0, size, predicate));
+
+        return matched.length > limit ? Arrays.copyOf(matched, limit) : matched;
+    }
+
+    private static int[] scan(int[] rows, int from, int to, IntPredicate predicate, int limit) {
+
+        int[] matched = new int[Math.min(to - from, 1024)];
+        int count = 0;
+
+        for (int i = from; i < to && count < limit; i++) {
+
+            int row = rows != null ? rows[i] : i;
+
+            if (predicate.test(row)) {
+
+                if (count == matched.length) {
+
+                    matched = Arrays.copyOf(matched, Math.min(to - from, count * 2));
+                }
+
+                matched[count++] = row;
+            }
+        }
+
+        return count == matched.length ? matched : Arrays.copyOf(matched, count);
+    }
+
+    private class FilterTask extends RecursiveTask<int[]> {
+
+        private final int[] rows;
+        private final int from;
+        private final int to;
+        private final IntPredicate predicate;
+
+        FilterTask(int[] rows, int from, int to, IntPredicate predicate) {
+
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.predicate = predicate;
+        }
+
+        @Override
+        protected int[] compute() {
+
+            if (to - from <= threshold) {
+
+                return scan(rows, from, to, predicate, Integer.MAX_VALUE);
+            }
+
+            int mid = (from + to) >>> 1;
+
+            FilterTask left = new FilterTask(rows, from, mid, predicate);
+            left.fork();
+
+            int[] right = new FilterTask(rows, mid, to, predicate).compute();
+            int[] leftRows = left.join();
+
+            // Ordered merge: left piece first, so the result keeps row order
+            int[] merged = Arrays.copyOf(leftRows, leftRows.length + right.length);
+            System.arraycopy(right, 0, merged, leftRows.length, right.length);
+
+            return merged;
+        }
+    }
+
+    // Mirrors Rows.mergeSort, forking both halves while they are above the threshold
+    private class SortTask extends RecursiveAction {
+
+        private final int[] src;
+        private final int[] dest;
+        private final int from;
+        private final int to;
+        private final RowComparator comparator;
+
+        SortTask(int[] src, int[] dest, int from, int to, RowComparator comparator) {
+
+            this.src = src;
+            this.dest = dest;
+            this.from = from;
+            this.to = to;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (to - from <= threshold) {
+
+                Rows.mergeSort(src, dest, from, to, comparator);
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+
+            invokeAll(new SortTask(dest, src, from, mid, comparator), new SortTask(dest, src, mid, to, comparator));
+
+            if (comparator.compare(src[mid - 1], src[mid]) <= 0) {
+
+                System.arraycopy(src, from, dest, from, to - from);
+                return;
+            }
+
+            Rows.merge(src, dest, from, mid, to, comparator);
+        }
+    }
+
+    private class TopKTask extends RecursiveTask<int[]> {
+
+        private final int[] rows;
+        private final int from;
+        private final int to;
+        private final int k;
+        private final RowComparator comparator;
+
+        TopKTask(int[] rows, int from, int to, int k, RowComparator comparator) {
+
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.k = k;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected int[] compute() {
+
+            if (to - from <= threshold) {
+
+                return Rows.topK(Arrays.copyOfRange(rows, from, to), k, comparator);
+            }
+
+            int mid = (from + to) >>> 1;
+
+            TopKTask left = new TopKTask(rows, from, mid, k, comparator);
+            left.fork();
+
+            int[] right = new TopKTask(rows, mid, to, k, comparator).compute();
+            int[] leftRows = left.join();
+
+            // Stable merge of the two winners' lists: on ties the left (earlier) chunk goes first
+            int[] merged = new int[Math.min(k, leftRows.length + right.length)];
+            int l = 0;
+            int r = 0;
+
+            for (int i = 0; i < merged.length; i++) {
+
+                if (r >= right.length || (l < leftRows.length && comparator.compare(leftRows[l], right[r]) <= 0)) {
+
+                    merged[i] = leftRows[l++];
+
+                } else {
+
+                    merged[i] = right[r++];
+                }
+            }
+
+            return merged;
+        }
+    }
+}
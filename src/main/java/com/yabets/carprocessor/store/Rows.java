@@ -0,0 +1,215 @@
+package com.yabets.carprocessor.store;
+
+import java.util.stream.IntStream;
+
+// Helpers for row-id selections, which are plain int arrays in ascending or sorted order
+public class Rows {
+
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    public static int[] all(int size) {
+        return IntStream.range(0, size).toArray();
+    }
+
+    // Reorders a selection to follow a precomputed order over all rows, in O(order.length)
+    public static int[] inOrder(IntColumn order, int[] rows) {
+        return inOrder(order, rows, rows.length);
+    }
+
+    // Same walk, stopping once limit rows have been found
+    public static int[] inOrder(IntColumn order, int[] rows, int limit) {
+
+        boolean[] selected = new boolean[order.length()];
+
+        for (int row : rows) {
+
+            selected[row] = true;
+        }
+
+        int size = Math.min(limit, rows.length);
+        int[] sorted = new int[size];
+        int count = 0;
+
+        for (int i = 0; i < order.length() && count < size; i++) {
+
+            int row = order.get(i);
+
+            if (selected[row]) { sorted[count++] = row; }
+        }
+
+        return sorted;
+    }
+
+    public static boolean isAscending(int[] rows) {
+
+        for (int i = 1; i < rows.length; i++) {
+
+            if (rows[i] <= rows[i - 1]) { return false; }
+        }
+
+        return true;
+    }
+
+    // Stable merge sort, so rows that compare equal keep their incoming order
+    public static void sort(int[] rows, RowComparator comparator) {
+
+        if (rows.length < 2) { return; }
+
+        int[] buffer = rows.clone();
+        mergeSort(buffer, rows, 0, rows.length, comparator);
+    }
+
+    // Sorts src[from, to) into dest[from, to); both arrays start with identical contents
+    static void mergeSort(int[] src, int[] dest, int from, int to, RowComparator comparator) {
+
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+
+            insertionSort(dest, from, to, comparator);
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+
+        mergeSort(dest, src, from, mid, comparator);
+        mergeSort(dest, src, mid, to, comparator);
+
+        if (comparator.compare(src[mid - 1], src[mid]) <= 0) {
+
+            System.arraycopy(src, from, dest, from, to - from);
+            return;
+        }
+
+        merge(src, dest, from, mid, to, comparator);
+    }
+
+    // The first k rows of a stable sort, via a bounded heap: O(n log k) time and O(k) memory.
+    // Ties are broken by position in the input, which is what keeps the result stable.
+    public static int[] topK(int[] rows, int k, RowComparator comparator) {
+
+        if (k >= rows.length) {
+
+            int[] sorted = rows.clone();
+            sort(sorted, comparator);
+
+            return sorted;
+        }
+
+        if (k <= 0) { return new int[0]; }
+
+        // Max-heap of input positions: the worst of the current top k sits at the root
+        int[] heap = new int[k];
+        int size = 0;
+
+        for (int position = 0; position < rows.length; position++) {
+
+            if (size < k) {
+
+                heap[size] = position;
+                siftUp(heap, size++, rows, comparator);
+
+            } else if (ranksBefore(rows, position, heap[0], comparator)) {
+
+                heap[0] = position;
+                siftDown(heap, size, rows, comparator);
+            }
+        }
+
+        // Pop worst-first into the tail of the result
+        int[] top = new int[k];
+
+        for (int i = k - 1; i >= 0; i--) {
+
+            top[i] = rows[heap[0]];
+            heap[0] = heap[--size];
+            siftDown(heap, size, rows, comparator);
+        }
+
+        return top;
+    }
+
+    private static boolean ranksBefore(int[] rows, int positionA, int positionB, RowComparator comparator) {
+
+        int result = comparator.compare(rows[positionA], rows[positionB]);
+
+        return result < 0 || (result == 0 && positionA < positionB);
+    }
+
+    private static void siftUp(int[] heap, int index, int[] rows, RowComparator comparator) {
+
+        int position = heap[index];
+
+        while (index > 0) {
+
+            int parent = (index - 1) >>> 1;
+
+            if (!ranksBefore(rows, heap[parent], position, comparator)) { break; }
+
+            heap[index] = heap[parent];
+            index = parent;
+        }
+
+        heap[index] = position;
+    }
+
+    private static void siftDown(int[] heap, int size, int[] rows, RowComparator comparator) {
+
+        if (size == 0) { return; }
+
+        int position = heap[0];
+        int index = 0;
+
+        while (true) {
+
+            int child = 2 * index + 1;
+
+            if (child >= size) { break; }
+
+            if (child + 1 < size && ranksBefore(rows, heap[child], heap[child + 1], comparator)) {
+
+                child++;
+            }
+
+            if (!ranksBefore(rows, position, heap[child], comparator)) { break; }
+
+            heap[index] = heap[child];
+            index = child;
+        }
+
+        heap[index] = position;
+    }
+
+    static void merge(int[] src, int[] dest, int from, int mid, int to, RowComparator comparator) {
+
+        int left = from;
+        int right = mid;
+
+        for (int i = from; i < to; i++) {
+
+            if (right >= to || (left < mid && comparator.compare(src[left], src[right]) <= 0)) {
+
+                dest[i] = src[left++];
+
+            } else {
+
+                dest[i] = src[right++];
+            }
+        }
+    }
+
+    private static void insertionSort(int[] rows, int from, int to, RowComparator comparator) {
+
+        for (int i = from + 1; i < to; i++) {
+
+            int row = rows[i];
+            int j = i - 1;
+
+            while (j >= from && comparator.compare(rows[j], row) > 0) {
+
+                rows[j + 1] = rows[j];
+                j--;
+            }
+
+            rows[j + 1] = row;
+        }
+    }
+}
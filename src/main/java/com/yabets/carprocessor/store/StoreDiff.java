@@ -0,0 +1,222 @@
+package com.yabets.carprocessor.store;
+
+// Row-level difference between two stores; rows match by content, not by position. Rows are compared
+// by 64-bit hashes of their columns, counted in primitive maps, so no per-row objects are built
+public record StoreDiff(int added, int removed, int updated, int unchanged) {
+
+    public static StoreDiff between(CarStore before, CarStore after) {
+
+        RowHashes beforeRows = new RowHashes(before);
+        RowHashes afterRows = new RowHashes(after);
+        LongCounts remaining = new LongCounts(before.size());
+
+        for (int row = 0; row < before.size(); row++) {
+
+            remaining.add(beforeRows.content(row));
+        }
+
+        // First pass pairs identical rows; whatever is left on either side changed
+        LongCounts leftoverAfter = new LongCounts(16);
+        int unchanged = 0;
+
+        for (int row = 0; row < after.size(); row++) {
+
+            if (remaining.take(afterRows.content(row))) {
+
+                unchanged++;
+
+            } else {
+
+                leftoverAfter.add(afterRows.identity(row));
+            }
+        }
+
+        // Same car (type, model, brand) with different prices or release date counts as updated
+        int removed = 0;
+        int updated = 0;
+
+        for (int row = 0; row < before.size(); row++) {
+
+            if (!remaining.take(beforeRows.content(row))) { continue; }
+
+            if (leftoverAfter.take(beforeRows.identity(row))) { updated++; } else { removed++; }
+        }
+
+        int added = after.size() - unchanged - updated;
+
+        return new StoreDiff(added, removed, updated, unchanged);
+    }
+
+    public int changed() {
+        return added + removed + updated;
+    }
+
+    // Hashes of the dictionary values are computed once per code, not per row
+    private static final class RowHashes {
+
+        private final CarStore store;
+        private final long[] typeHashes;
+        private final long[] modelHashes;
+        private final long[] brandHashes;
+        private final PriceColumn[] priceColumns;
+        private final long[] currencyHashes;
+
+        RowHashes(CarStore store) {
+
+            this.store = store;
+
+            typeHashes = hashes(store.types());
+            modelHashes = hashes(store.models());
+            brandHashes = hashes(store.brands());
+            priceColumns = store.priceColumns().values().toArray(new PriceColumn[0]);
+            currencyHashes = new long[priceColumns.length];
+
+            for (int i = 0; i < priceColumns.length; i++) {
+
+                currencyHashes[i] = hash(priceColumns[i].currency());
+            }
+        }
+
+        long identity(int row) {
+            return mix(mix(typeHashes[store.typeCode(row)], modelHashes[store.modelCode(row)]), brandHashes[store.brandCode(row)]);
+        }
+
+        // The prices are summed, so the currencies' order does not matter
+        long content(int row) {
+
+            long prices = 0;
+
+            for (int i = 0; i < priceColumns.length; i++) {
+
+                if (priceColumns[i].isPresent(row)) {
+
+                    prices += mix(currencyHashes[i], Double.doubleToLongBits(priceColumns[i].value(row)));
+                }
+            }
+
+            return mix(mix(identity(row), store.releaseDay(row)), prices);
+        }
+
+        private static long[] hashes(StringDictionary dictionary) {
+
+            long[] hashes = new long[dictionary.size()];
+
+            for (int code = 0; code < hashes.length; code++) {
+
+                hashes[code] = hash(dictionary.decode(code));
+            }
+
+            return hashes;
+        }
+
+        private static long hash(String value) {
+
+            if (value == null) { return 0; }
+
+            long hash = 1125899906842597L;
+
+            for (int i = 0; i < value.length(); i++) {
+
+                hash = 31 * hash + value.charAt(i);
+            }
+
+            return mix(hash, value.length());
+        }
+    }
+
+    // Murmur3's 64-bit finalizer over the combined values
+    private static long mix(long hash, long value) {
+
+        long h = hash * 0x9E3779B97F4A7C15L + value;
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+
+        return h ^ (h >>> 33);
+    }
+
+    // Open-addressing count per hash; slots are never freed, a count just drops to zero
+    private static final class LongCounts {
+
+        private long[] keys;
+        private int[] counts;
+        private boolean[] used;
+        private int size;
+
+        LongCounts(int expected) {
+
+            int capacity = 16;
+
+            while (capacity < expected * 2L) { capacity <<= 1; }
+
+            keys = new long[capacity];
+            counts = new int[capacity];
+            used = new boolean[capacity];
+        }
+
+        void add(long key) {
+
+            int slot = slot(key);
+
+            if (!used[slot]) {
+
+                used[slot] = true;
+                keys[slot] = key;
+                size++;
+            }
+
+            counts[slot]++;
+
+            if (size * 2L > keys.length) { grow(); }
+        }
+
+        // False when no count for key is left
+        boolean take(long key) {
+
+            int slot = slot(key);
+
+            if (!used[slot] || counts[slot] == 0) { return false; }
+
+            counts[slot]--;
+
+            return true;
+        }
+
+        private int slot(long key) {
+
+            int mask = keys.length - 1;
+            int slot = (int) (key ^ (key >>> 32)) & mask;
+
+            while (used[slot] && keys[slot] != key) {
+
+                slot = (slot + 1) & mask;
+            }
+
+            return slot;
+        }
+
+        private void grow() {
+
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            boolean[] oldUsed = used;
+
+            keys = new long[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+
+            for (int i = 0; i < oldKeys.length; i++) {
+
+                if (!oldUsed[i]) { continue; }
+
+                int slot = slot(oldKeys[i]);
+
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+}
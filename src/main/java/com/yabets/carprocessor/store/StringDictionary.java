@@ -0,0 +1,48 @@
+package com.yabets.carprocessor.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Maps each distinct string of a column to a dense int code
+public class StringDictionary {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    public int encode(String value) {
+
+        Integer code = codes.get(value);
+
+        if (code == null) {
+
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+
+        return code;
+    }
+
+    public String decode(int code) {
+        return values.get(code);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    // Per-code match flags, so a row check is one array read instead of equalsIgnoreCase
+    public boolean[] matchIgnoreCase(String value) {
+
+        boolean[] matches = new boolean[values.size()];
+
+        for (int code = 0; code < matches.length; code++) {
+
+            matches[code] = value.equalsIgnoreCase(values.get(code));
+        }
+
+        return matches;
+    }
+}
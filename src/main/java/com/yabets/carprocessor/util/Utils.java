@@ -1,22 +1,39 @@
 package com.yabets.carprocessor.util;
 
+import com.yabets.carprocessor.cache.QueryCache;
+import com.yabets.carprocessor.export.BulkExport;
+import com.yabets.carprocessor.export.RowEncoder;
 import com.yabets.carprocessor.filter.BrandPriceFilter;
 import com.yabets.carprocessor.filter.BrandReleaseDateFilter;
 import com.yabets.carprocessor.filter.CarFilter;
+import com.yabets.carprocessor.metrics.CommandMetrics;
+import com.yabets.carprocessor.metrics.CountingWriter;
+import com.yabets.carprocessor.metrics.LatencyHistogram;
+import com.yabets.carprocessor.metrics.LoadMetrics;
+import com.yabets.carprocessor.metrics.Metrics;
 import com.yabets.carprocessor.model.Car;
-import com.yabets.carprocessor.output.JsonFormatter;
 import com.yabets.carprocessor.output.OutputFormatter;
+import com.yabets.carprocessor.output.PageCursor;
 import com.yabets.carprocessor.output.TableFormatter;
-import com.yabets.carprocessor.output.XmlFormatter;
+import com.yabets.carprocessor.query.CarQuery;
+import com.yabets.carprocessor.query.QueryExplain;
+import com.yabets.carprocessor.query.QueryParser;
 import com.yabets.carprocessor.sorter.CarSorter;
-import com.yabets.carprocessor.sorter.CurrencyTypeSorter;
-import com.yabets.carprocessor.sorter.PriceSorter;
-import com.yabets.carprocessor.sorter.ReleaseYearSorter;
-
+import com.yabets.carprocessor.store.CarStore;
+import com.yabets.carprocessor.store.RowExecutor;
+import com.yabets.carprocessor.store.Rows;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class Utils {
@@ -25,39 +42,151 @@ public class Utils {
 
     private static String defaultOutputFormat = "table"; // Default to table output
 
-    public static List<Car> processCommand(String command, List<Car> cars, List<Car> initialCars) {
+    private static RowExecutor executor = RowExecutor.SEQUENTIAL;
+
+    private static QueryCache cache = new QueryCache(QueryCache.DEFAULT_MAX_ENTRIES, QueryCache.DEFAULT_MAX_BYTES, false);
+
+    private static Writer output = stdoutWriter();
+
+    private static boolean flushAfterCommand = true;
+
+    // Table results longer than this are shown a page at a time; 0 shows them whole
+    private static int pageSize = 0;
+
+    private static PageCursor cursor;
+
+    // The last result shown, and the dataset its row ids belong to, for export
+    private static CarStore resultStore;
+    private static int[] resultRows;
+
+    private static int exportThreads = Runtime.getRuntime().availableProcessors();
+
+    public static void setExecutor(RowExecutor rowExecutor) {
+        executor = rowExecutor;
+    }
+
+    public static void setCache(QueryCache queryCache) {
+        cache = queryCache;
+    }
+
+    public static void setPageSize(int size) {
+        pageSize = size;
+    }
+
+    public static void setExportThreads(int threads) {
+        exportThreads = threads;
+    }
+
+    public static QueryCache.Stats cacheStats() {
+        return cache.stats();
+    }
+
+    // Interactive runs flush after every command; batch runs hand in one large buffer flushed at the end
+    public static void setOutput(Writer writer, boolean flushEachCommand) {
+        output = writer;
+        flushAfterCommand = flushEachCommand;
+    }
+
+    // Buffered UTF-8 writer over System.out; closing it is never needed
+    public static Writer stdoutWriter() {
+        return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), OutputFormatter.BUFFER_SIZE);
+    }
+
+    // For callers outside Utils, so their messages stay ordered with command results
+    public static void println(String text) {
+
+        try {
+
+            output.write(text);
+            output.write(System.lineSeparator());
+
+        } catch (IOException e) {
+
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Every command reads the store as loaded, so no reset is needed after filter or sort
+    public static void processCommand(String command, CarStore store) {
+
+        try {
+
+            runCommand(command, store);
+
+        } finally {
+
+            if (flushAfterCommand) { flushOutput(); }
+        }
+    }
+
+    // For commands handled outside Utils, so their output is flushed the way processCommand flushes
+    public static void endCommand() {
+
+        if (flushAfterCommand) { flushOutput(); }
+    }
+
+    private static void runCommand(String command, CarStore store) {
 
         String[] parts = command.split("\\s+");
 
         if (parts.length == 0) {
 
             printHelp();
-            return new ArrayList<>();
+            return;
         }
 
         switch (parts[0].toLowerCase()) {
             case "filter":
-                if (parts.length < 4) {
-                    throw new IllegalArgumentException("Usage: filter <brand-price|brand-date> <params>");
-                }
-                cars = filterCars(parts, cars);
-                outputCars(defaultOutputFormat, cars);
-                cars = new ArrayList<>(initialCars); // Reset list after output
-                break;
             case "sort":
+            case "query":
+                runQuery(parts, store);
+                break;
+            case "explain":
                 if (parts.length < 2) {
-                    throw new IllegalArgumentException("Usage: sort <year|price|currency-type> [currency]");
+                    throw new IllegalArgumentException("Usage: explain <filter|sort|query command>");
                 }
-                cars = sortCars(parts, cars);
-                outputCars(defaultOutputFormat, cars);
-                cars = new ArrayList<>(initialCars); // Reset list after output
+                explain(Arrays.copyOfRange(parts, 1, parts.length), store);
                 break;
             case "output":
                 if (parts.length != 2) {
                     throw new IllegalArgumentException("Usage: output <table|xml|json>");
                 }
                 defaultOutputFormat = parts[1].toLowerCase();
-                outputCars(defaultOutputFormat, cars);
+                remember(store, Rows.all(store.size()));
+                if (paged()) {
+                    cursor = new PageCursor(store, Rows.all(store.size()), pageSize);
+                    showPage();
+                } else {
+                    outputCars(defaultOutputFormat, store.cars());
+                }
+                break;
+            case "page":
+                pageCommand(parts);
+                break;
+            case "next":
+            case "prev":
+                if (parts.length != 1) {
+                    throw new IllegalArgumentException("Usage: " + parts[0].toLowerCase());
+                }
+                turnPage(parts[0].equalsIgnoreCase("next") ? 1 : -1);
+                break;
+            case "export":
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("Usage: export <ndjson|csv> <path>");
+                }
+                export(parts[1], Path.of(parts[2]), store);
+                break;
+            case "cache":
+                if (parts.length > 2) {
+                    throw new IllegalArgumentException("Usage: cache [stats|clear]");
+                }
+                cacheCommand(parts.length == 2 ? parts[1].toLowerCase() : "stats");
+                break;
+            case "stats":
+                if (parts.length != 1) {
+                    throw new IllegalArgumentException("Usage: stats");
+                }
+                printStats();
                 break;
             case "help":
                 printHelp();
@@ -65,28 +194,65 @@ public class Utils {
             default:
                 throw new IllegalArgumentException("Unknown command: " + parts[0]);
         }
+    }
+
+    private static void flushOutput() {
+
+        try {
+
+            output.flush();
+
+        } catch (IOException e) {
+
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Name a command is measured under: filters and sorts by their kind, e.g. "sort price", others by their verb
+    public static String commandType(String[] parts) {
 
-        return cars;
+        String verb = parts[0].toLowerCase();
+
+        return (verb.equals("filter") || verb.equals("sort")) && parts.length > 1 ? verb + " " + parts[1].toLowerCase() : verb;
+    }
+
+    // The query behind a filter, sort or query command
+    public static CarQuery parseQuery(String[] parts) {
+
+        switch (parts[0].toLowerCase()) {
+            case "filter":
+                if (parts.length < 4) {
+                    throw new IllegalArgumentException("Usage: filter <brand-price|brand-date> <params>");
+                }
+                return filterQuery(parts);
+            case "sort":
+                if (parts.length < 2) {
+                    throw new IllegalArgumentException("Usage: sort <year|price <currency>|currency-type> [limit <n>]");
+                }
+                return sortQuery(parts);
+            case "query":
+                return new QueryParser(parts, 1).parse();
+            default:
+                throw new IllegalArgumentException("Not a query command: " + parts[0]);
+        }
     }
 
-    public static String getBrandFromModel(String model) {
+    // Matching rows through the shared cache and executor; safe to call from many threads at once
+    public static int[] execute(CarQuery query, CarStore store) {
+
+        String key = query.describe();
+        int[] rows = cache.rows(store, key);
+
+        if (rows == null) {
 
-        return switch (model) {
-            case "RAV4" -> "Toyota";
-            case "Civic" -> "Honda";
-            case "F-150" -> "Ford";
-            case "Model X" -> "Tesla";
-            case "330i" -> "BMW";
-            case "Q5" -> "Audi";
-            case "Silverado" -> "Chevrolet";
-            case "C-Class" -> "Mercedes-Benz";
-            case "Rogue" -> "Nissan";
-            case "Elantra" -> "Hyundai";
-            default -> throw new IllegalArgumentException("Unknown model: " + model);
-        };
+            rows = query.execute(store, executor);
+            cache.putRows(store, key, rows);
+        }
+
+        return rows;
     }
 
-    private static List<Car> filterCars(String[] parts, List<Car> cars) {
+    private static CarQuery filterQuery(String[] parts) {
 
         CarFilter filter;
 
@@ -131,63 +297,371 @@ public class Utils {
             throw new IllegalArgumentException("Invalid filter type: " + parts[1]);
         }
 
-        return filter.filter(cars);
+        return CarQuery.of(filter);
     }
 
-    private static List<Car> sortCars(String[] parts, List<Car> cars) {
+    private static CarQuery sortQuery(String[] parts) {
+
+        QueryParser parser = new QueryParser(parts, 1, "Usage: sort <year|price <currency>|currency-type> [limit <n>]");
 
-        CarSorter sorter;
+        CarSorter sorter = parser.parseSorter();
+        int limit = parser.accept("limit") ? parser.parseLimit() : CarQuery.NO_LIMIT;
 
-        if (parts[1].equalsIgnoreCase("year")) {
+        parser.expectEnd();
 
-            sorter = new ReleaseYearSorter();
+        return new CarQuery(List.of(), sorter, limit);
+    }
+
+    // Times parsing, execution and rendering separately; rendering stops at the output buffer,
+    // so how fast the terminal drains it is not counted
+    private static void runQuery(String[] parts, CarStore store) {
+
+        CommandMetrics metrics = Metrics.command(commandType(parts));
+
+        try {
+
+            long start = System.nanoTime();
+
+            CarQuery query = parseQuery(parts);
+            long parsed = System.nanoTime();
+
+            int[] rows = execute(query, store);
+            long executed = System.nanoTime();
+
+            remember(store, rows);
+
+            long chars = outputQuery(query, rows, store);
+            long rendered = System.nanoTime();
+
+            if (metrics != null) { metrics.record(parsed - start, executed - parsed, rendered - executed, store.size(), rows.length, chars); }
+
+        } catch (RuntimeException e) {
+
+            if (metrics != null) { metrics.recordError(); }
+
+            throw e;
+        }
+    }
+
+    // Equivalent commands share a cache entry because they share a canonical description; returns the characters written
+    private static long outputQuery(CarQuery query, int[] rows, CarStore store) {
+
+        // A paged result is never rendered whole, so it bypasses the rendered-text cache
+        if (paged()) {
+
+            cursor = new PageCursor(store, rows, pageSize);
+            return showPage();
+        }
+
+        CountingWriter writer = new CountingWriter(output);
+
+        try {
+
+            render(query, rows, store, defaultOutputFormat, writer);
+
+        } catch (IOException e) {
+
+            throw new UncheckedIOException(e);
+        }
+
+        return writer.count();
+    }
 
-        } else if (parts[1].equalsIgnoreCase("price")) {
+    // Writes the rows execute() returned for the query, reusing cached text when rendered results are cached
+    public static void render(CarQuery query, int[] rows, CarStore store, String format, Writer writer) throws IOException {
 
-            if (parts.length != 3) {
+        String key = query.describe();
+        String text = cache.rendered(store, key, format);
 
-                throw new IllegalArgumentException("Usage: sort price <currency>");
+        if (text == null && cache.cachesRendered(rows.length)) {
+
+            text = OutputFormatter.forFormat(format).format(store.cars(rows));
+            cache.putRendered(store, key, format, text);
+        }
+
+        if (text != null) {
+
+            writer.write(text);
+
+        } else {
+
+            OutputFormatter.forFormat(format).write(store.cars(rows), writer);
+        }
+
+        writer.write(System.lineSeparator());
+    }
+
+    private static void remember(CarStore store, int[] rows) {
+
+        resultStore = store;
+        resultRows = rows;
+    }
+
+    // Writes the last result, or every car before any command ran, from the dataset it was computed on
+    private static void export(String format, Path file, CarStore store) {
+
+        CarStore source = resultStore != null ? resultStore : store;
+        int[] rows = resultRows != null ? resultRows : Rows.all(store.size());
+
+        RowEncoder encoder = RowEncoder.forFormat(format, source);
+        BulkExport.Result result;
+
+        try {
+
+            result = new BulkExport(exportThreads, BulkExport.DEFAULT_CHUNK_ROWS).export(source, rows, encoder, file);
+
+        } catch (IOException e) {
+
+            throw new UncheckedIOException("Failed to export to " + file + ": " + e.getMessage(), e);
+        }
+
+        println(String.format("Exported %d rows to %s in %.1f ms: %.0f rows/s, %.1f MB/s (%d bytes encoded, %d written)",
+                result.rows(), file, result.nanos() / 1_000_000.0, result.rowsPerSecond(), result.megabytesPerSecond(),
+                result.rawBytes(), result.bytes()));
+    }
+
+    private static boolean paged() {
+        return pageSize > 0 && defaultOutputFormat.equals("table");
+    }
+
+    // page shows the current page again, page <n> jumps to page n, page size <n> changes the page size (0 turns paging off)
+    private static void pageCommand(String[] parts) {
+
+        if (parts.length == 3 && parts[1].equalsIgnoreCase("size")) {
+
+            pageSize = parseCount(parts[2], "page size");
+
+            if (pageSize == 0) {
+
+                cursor = null;
+                println("Paging off: table results are shown whole.");
+
+            } else {
+
+                if (cursor != null) { cursor = cursor.resize(pageSize); }
+
+                println("Page size set to " + pageSize + " rows.");
             }
 
-            sorter = new PriceSorter(parts[2].toUpperCase());
+        } else if (parts.length == 2) {
+
+            requireCursor().moveTo(parseCount(parts[1], "page") - 1);
+            showPage();
 
-        } else if (parts[1].equalsIgnoreCase("currency-type")) {
+        } else if (parts.length == 1) {
 
-            sorter = new CurrencyTypeSorter();
+            requireCursor();
+            showPage();
 
         } else {
 
-            throw new IllegalArgumentException("Invalid sort type: " + parts[1]);
+            throw new IllegalArgumentException("Usage: page [<n>|size <n>]");
+        }
+    }
+
+    private static void turnPage(int step) {
+
+        PageCursor current = requireCursor();
+        int target = current.page() + step;
+
+        if (target < 0 || target >= current.pages()) {
+
+            throw new IllegalArgumentException(step > 0 ? "Already on the last page" : "Already on the first page");
         }
 
-        return sorter.sort(cars);
+        current.moveTo(target);
+        showPage();
+    }
+
+    private static PageCursor requireCursor() {
+
+        if (cursor == null) {
+
+            throw new IllegalArgumentException("No paged result: set a page size with 'page size <n>', then run a filter, sort or query command");
+        }
+
+        return cursor;
+    }
+
+    // Renders only the cursor's current page, then where it is; returns the characters written
+    private static long showPage() {
+
+        CountingWriter writer = new CountingWriter(output);
+
+        try {
+
+            new TableFormatter().write(cursor.visible(), writer);
+
+        } catch (IOException e) {
+
+            throw new UncheckedIOException(e);
+        }
+
+        println(cursor.total() == 0
+                ? "Page 1 of 1, no rows"
+                : String.format("Page %d of %d, rows %d-%d of %d (next, prev, page <n>)",
+                        cursor.page() + 1, cursor.pages(), cursor.from() + 1, cursor.to(), cursor.total()));
+
+        return writer.count();
+    }
+
+    private static int parseCount(String text, String name) {
+
+        try {
+
+            int value = Integer.parseInt(text);
+
+            if (value >= 0) { return value; }
+
+        } catch (NumberFormatException e) {
+
+            // Reported below, with negative values
+        }
+
+        throw new IllegalArgumentException("Invalid " + name + ": " + text);
     }
 
     private static void outputCars(String format, List<Car> cars) {
 
-        OutputFormatter formatter = switch (format.toLowerCase()) {
-            case "table" -> new TableFormatter();
-            case "xml" -> new XmlFormatter();
-            case "json" -> new JsonFormatter();
-            default -> throw new IllegalArgumentException("Invalid output format: " + format);
-        };
+        OutputFormatter formatter = OutputFormatter.forFormat(format);
+
+        try {
+
+            // Render straight into the shared output writer; flushing is left to processCommand
+            formatter.write(cars, output);
+            output.write(System.lineSeparator());
+
+        } catch (IOException e) {
+
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void cacheCommand(String action) {
+
+        switch (action) {
+            case "stats" -> println(cacheSummary());
+            case "clear" -> {
+
+                cache.invalidate();
+                println("Query cache cleared.");
+            }
+            default -> throw new IllegalArgumentException("Usage: cache [stats|clear]");
+        }
+    }
+
+    // Per-stage rows, reject reasons and timings of one query command, instead of its result
+    private static void explain(String[] parts, CarStore store) {
+
+        long start = System.nanoTime();
+        CarQuery query = parseQuery(parts);
+        long parseNanos = System.nanoTime() - start;
+
+        QueryExplain.Explanation explanation = QueryExplain.explain(query, store, executor);
+
+        // Rendered as the command would be, but discarded
+        CountingWriter writer = new CountingWriter(Writer.nullWriter());
+        start = System.nanoTime();
+
+        try {
+
+            OutputFormatter.forFormat(defaultOutputFormat).write(store.cars(explanation.rows()), writer);
+
+        } catch (IOException e) {
+
+            throw new UncheckedIOException(e);
+        }
+
+        long renderNanos = System.nanoTime() - start;
+
+        StringBuilder text = new StringBuilder("Plan: " + explanation.plan() + System.lineSeparator());
+        text.append(String.format("%-48s %10s %10s %10s  %s%n", "Stage", "Examined", "Passed", "Time ms", "Rejected"));
+        text.append(String.format("%-48s %10s %10s %10.3f%n", "parse", "", "", parseNanos / 1_000_000.0));
+
+        for (QueryExplain.Stage stage : explanation.stages()) {
+
+            text.append(String.format("%-48s %10d %10d %10.3f  %s%n", stage.name(), stage.examined(), stage.passed(),
+                    stage.nanos() / 1_000_000.0, QueryExplain.rejectSummary(stage.rejected())));
+        }
+
+        text.append(String.format("%-48s %10d %10d %10.3f  %d chars%n", "render " + defaultOutputFormat, explanation.rows().length,
+                explanation.rows().length, renderNanos / 1_000_000.0, writer.count()));
+        text.append(String.format("Result: %d rows; normal execution took %.3f ms, uncached", explanation.rows().length,
+                explanation.executeNanos() / 1_000_000.0));
+
+        println(text.toString());
+    }
+
+    private static String cacheSummary() {
+
+        QueryCache.Stats stats = cache.stats();
+
+        return String.format("Query cache: %d entries, %d bytes, %d hits, %d misses (%.1f%% hit rate), %d rendered hits, %d evictions, %d invalidations",
+                stats.entries(), stats.bytes(), stats.hits(), stats.misses(), stats.hitRate() * 100,
+                stats.renderedHits(), stats.evictions(), stats.invalidations());
+    }
+
+    // Command latencies since startup, then load durations and the cache counters
+    private static void printStats() {
+
+        StringBuilder text = new StringBuilder(String.format("%-20s %8s %7s %9s %9s %9s %9s %9s %13s %11s %13s%n",
+                "Command", "Count", "Errors", "p50 ms", "p90 ms", "p99 ms", "p999 ms", "Max ms", "Rows in", "Rows out", "Chars out"));
+
+        for (CommandMetrics command : Metrics.commands()) {
+
+            if (command.getCount() + command.getErrors() == 0) { continue; }
+
+            LatencyHistogram total = command.phases().get("total");
+
+            text.append(String.format("%-20s %8d %7d %9.3f %9.3f %9.3f %9.3f %9.3f %13d %11d %13d%n",
+                    command.getType(), command.getCount(), command.getErrors(), total.getP50Millis(), total.getP90Millis(),
+                    total.getP99Millis(), total.getP999Millis(), total.getMaxMillis(), command.getRowsIn(), command.getRowsOut(),
+                    command.getCharsRendered()));
+
+            text.append(String.format("  p99 parse %.3f ms, execute %.3f ms, render %.3f ms%n",
+                    command.phases().get("parse").getP99Millis(), command.phases().get("execute").getP99Millis(),
+                    command.phases().get("render").getP99Millis()));
+        }
+
+        LoadMetrics loads = Metrics.loads();
+
+        text.append(String.format("Loads: %d from files (max %.1f ms), %d from snapshot (max %.1f ms), %d reloads (p50 %.1f ms, max %.1f ms), %d failed reloads%n",
+                loads.getFileLoads(), loads.files().getMaxMillis(), loads.getSnapshotLoads(), loads.snapshots().getMaxMillis(),
+                loads.getReloads(), loads.reloads().getP50Millis(), loads.reloads().getMaxMillis(), loads.getReloadFailures()));
+
+        text.append(cacheSummary());
 
-        System.out.println(formatter.format(cars));
+        println(text.toString());
     }
 
     private static void printHelp() {
 
-        System.out.println("""
+        println("""
             Commands:
               filter brand-price <brand|null> <min-price> <max-price> <currency> - Filter by brand and price, outputs table
               filter brand-date <brand|null> <start-date> <end-date> - Filter by brand and release date (MM/dd/yyyy), outputs table
-              sort year - Sort by release year (latest to oldest), outputs table
-              sort price <currency> - Sort by price (highest to lowest), outputs table
-              sort currency-type - Sort SUVs (EUR), Sedans (JPY), Trucks (USD), outputs table
+              sort year [limit <n>] - Sort by release year (latest to oldest), outputs table
+              sort price <currency> [limit <n>] - Sort by price (highest to lowest), outputs table
+              sort currency-type [limit <n>] - Sort each type by its own currency (default: SUVs EUR, Sedans JPY, Trucks USD), outputs table
+                  - Prices are compared in the requested currency, converting other prices with the exchange rates
+                  - With a limit only the top n cars are selected and shown
+              query [where <predicate> [and|or <predicate>]...] [sort <year|price <currency>|currency-type>] [limit <n>]
+                  - Combine filters, a sort and a limit in one pass; predicates: brand <name>, type <name>,
+                    model <name>, price <currency> <min> <max>, date <start> <end>; AND binds tighter than OR
+              explain <filter|sort|query command> - Show the plan, and per stage the rows examined, passed and
+                  rejected by reason, and the time taken, instead of the result
               output <table|xml|json> - Set output format (default: table)
+              export <ndjson|csv> <path> - Write the last result to a file; a path ending in .gz is gzipped
+              page size <n> - Show table results n rows at a time; 0 shows them whole (default)
+              page [<n>] - Show the current page of the last result, or page n
+              next / prev - Show the next or previous page
+              cache [stats|clear] - Show query cache counters, or drop every cached result
+              stats - Show command latency percentiles, rows, load durations and cache counters
+              rates [reload] - Show the exchange rates, or read the rates file again and reprice every car
+              snapshot save <file> - Write the loaded dataset to a binary snapshot for fast startup
               help - Show this help message
               exit - Exit the application
-            Note: Car list resets to initial state after each filter or sort command.
+            Note: Car list resets to initial state after each filter, sort or query command.
             """);
     }
 }
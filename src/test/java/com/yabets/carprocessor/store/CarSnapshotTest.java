@@ -0,0 +1,226 @@
+package com.yabets.carprocessor.store;
+
+import com.yabets.carprocessor.currency.ExchangeRates;
+import com.yabets.carprocessor.filter.AttributeFilter;
+import com.yabets.carprocessor.filter.AttributeFilter.Attribute;
+import com.yabets.carprocessor.filter.BrandPriceFilter;
+import com.yabets.carprocessor.filter.BrandReleaseDateFilter;
+import com.yabets.carprocessor.filter.CarFilter;
+import com.yabets.carprocessor.model.Car;
+import com.yabets.carprocessor.model.Price;
+import com.yabets.carprocessor.model.Prices;
+import com.yabets.carprocessor.query.CarQuery;
+import com.yabets.carprocessor.sorter.CarSorter;
+import com.yabets.carprocessor.sorter.CurrencyTypeSorter;
+import com.yabets.carprocessor.sorter.PriceSorter;
+import com.yabets.carprocessor.sorter.ReleaseYearSorter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// A saved snapshot must load back to a store that holds the same cars and answers every query the same way
+class CarSnapshotTest {
+
+    private static final long FINGERPRINT = 0x5eedL;
+
+    // JPY has no rate, so its prices are never converted and no car converts into it
+    private static final ExchangeRates RATES = ExchangeRates.of(Map.of("USD", 1.0, "EUR", 0.92, "GBP", 0.79));
+
+    private static final String[] TYPES = {"SUV", "Sedan", "Truck"};
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP", "JPY"};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void loadsTheSameCars() throws IOException {
+
+        CarStore saved = new CarStore(cars(3_000), RATES);
+        CarStore loaded = roundTrip(saved);
+
+        assertEquals(saved.size(), loaded.size());
+
+        for (int row = 0; row < saved.size(); row++) {
+
+            assertCar(saved.car(row), loaded.car(row), row);
+        }
+    }
+
+    @Test
+    void answersQueriesTheSame() throws IOException {
+
+        CarStore saved = new CarStore(cars(3_000), RATES);
+        CarStore loaded = roundTrip(saved);
+
+        List<CarFilter> filters = List.of(
+                new AttributeFilter(Attribute.TYPE, "suv"),
+                new AttributeFilter(Attribute.BRAND, "Brand-3"),
+                new BrandPriceFilter("Brand-1", 20_000, 60_000, "USD"),
+                new BrandPriceFilter(null, 15_000, 45_000, "EUR"),
+                new BrandPriceFilter(null, 2_000_000, 6_000_000, "JPY"),
+                new BrandReleaseDateFilter(null, LocalDate.of(2016, 1, 1), LocalDate.of(2018, 6, 30)),
+                new BrandReleaseDateFilter("Brand-0", LocalDate.of(2015, 1, 1), LocalDate.of(2024, 12, 31)));
+
+        for (CarFilter filter : filters) {
+
+            assertArrayEquals(filter.filter(saved), filter.filter(loaded), filter.describe());
+        }
+
+        List<CarSorter> sorters = List.of(new PriceSorter("USD"), new PriceSorter("GBP"), new PriceSorter("JPY"),
+                new ReleaseYearSorter(), new CurrencyTypeSorter());
+        int[] rows = Rows.all(saved.size());
+
+        for (CarSorter sorter : sorters) {
+
+            assertArrayEquals(sorter.sort(saved, rows), sorter.sort(loaded, rows), sorter.describe());
+            assertArrayEquals(sorter.sort(saved, rows, 25), sorter.sort(loaded, rows, 25), sorter.describe() + " limit 25");
+        }
+
+        CarQuery query = new CarQuery(List.of(List.of(filters.get(0), filters.get(3)), List.of(filters.get(5))),
+                new PriceSorter("EUR"), 50);
+
+        assertArrayEquals(query.execute(saved), query.execute(loaded), query.describe());
+    }
+
+    @Test
+    void keepsIndexesAndNormalizedPrices() throws IOException {
+
+        CarStore saved = new CarStore(cars(3_000), RATES);
+        CarStore loaded = roundTrip(saved);
+
+        assertEquals(saved.rates(), loaded.rates());
+        assertSame(loaded, loaded.withRates(RATES));
+        assertArrayEquals(saved.releaseDateIndex().order(), loaded.releaseDateIndex().order());
+
+        for (String currency : CURRENCIES) {
+
+            assertArrayEquals(saved.priceIndex(currency).order(), loaded.priceIndex(currency).order(), currency);
+            assertArrayEquals(saved.normalizedPriceIndex(currency).order(), loaded.normalizedPriceIndex(currency).order(), currency);
+
+            PriceColumn savedPrices = saved.normalizedPrices(currency);
+            PriceColumn loadedPrices = loaded.normalizedPrices(currency);
+
+            for (int row = 0; row < saved.size(); row++) {
+
+                assertEquals(savedPrices.isPresent(row), loadedPrices.isPresent(row), currency + " row " + row);
+                assertEquals(savedPrices.valueOrDefault(row, Double.NaN), loadedPrices.valueOrDefault(row, Double.NaN), currency + " row " + row);
+            }
+        }
+    }
+
+    @Test
+    void reloadsUnderOtherRates() throws IOException {
+
+        ExchangeRates other = ExchangeRates.of(Map.of("USD", 1.0, "EUR", 0.5, "JPY", 100.0));
+        CarStore saved = new CarStore(cars(1_000), RATES);
+        CarStore loaded = roundTrip(saved).withRates(other);
+        CarStore expected = saved.withRates(other);
+
+        for (String currency : CURRENCIES) {
+
+            assertArrayEquals(expected.normalizedPriceIndex(currency).order(), loaded.normalizedPriceIndex(currency).order(), currency);
+        }
+    }
+
+    @Test
+    void roundTripsAnEmptyStore() throws IOException {
+
+        CarStore loaded = roundTrip(new CarStore(List.of(), RATES));
+
+        assertEquals(0, loaded.size());
+        assertEquals(0, loaded.releaseDateIndex().order().length);
+    }
+
+    @Test
+    void rejectsStaleAndDamagedFiles() throws IOException {
+
+        Path file = dir.resolve("cars.snapshot");
+        CarSnapshot.save(new CarStore(cars(500), RATES), FINGERPRINT, file);
+
+        assertThrows(IOException.class, () -> CarSnapshot.load(file, FINGERPRINT + 1));
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x40;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> CarSnapshot.load(file, FINGERPRINT));
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 3));
+
+        assertThrows(IOException.class, () -> CarSnapshot.load(file, FINGERPRINT));
+    }
+
+    private CarStore roundTrip(CarStore store) throws IOException {
+
+        Path file = dir.resolve("cars.snapshot");
+        CarSnapshot.save(store, FINGERPRINT, file);
+
+        return CarSnapshot.load(file, FINGERPRINT);
+    }
+
+    // Mixed currencies in shuffled order, cars without prices, brands without a release date and repeated prices, so ties are kept
+    private static List<Car> cars(int count) {
+
+        SplittableRandom random = new SplittableRandom(7);
+        List<Car> cars = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+
+            int brand = random.nextInt(12);
+            List<Price> priceList = new ArrayList<>();
+
+            for (String currency : CURRENCIES) {
+
+                if (random.nextInt(4) == 0) { continue; }
+
+                double value = 1_000 * random.nextInt(10, 80);
+
+                priceList.add(new Price(currency, currency.equals("JPY") ? value * 150 : value));
+            }
+
+            Collections.shuffle(priceList, new Random(random.nextLong()));
+
+            Prices prices = new Prices();
+            prices.setPrices(random.nextInt(20) == 0 ? List.of() : priceList);
+
+            LocalDate releaseDate = brand % 4 == 3 ? null : LocalDate.of(2015, 1, 1).plusDays(brand * 211L);
+
+            cars.add(new Car(TYPES[random.nextInt(TYPES.length)], "Model-" + random.nextInt(40), prices, "Brand-" + brand, releaseDate));
+        }
+
+        return cars;
+    }
+
+    private static void assertCar(Car expected, Car actual, int row) {
+
+        String message = "row " + row;
+
+        assertEquals(expected.type(), actual.type(), message);
+        assertEquals(expected.model(), actual.model(), message);
+        assertEquals(expected.brand(), actual.brand(), message);
+        assertEquals(expected.releaseDate(), actual.releaseDate(), message);
+        assertEquals(expected.currencyCount(), actual.currencyCount(), message);
+
+        for (int i = 0; i < expected.currencyCount(); i++) {
+
+            assertEquals(expected.currency(i), actual.currency(i), message);
+            assertEquals(expected.price(i), actual.price(i), message);
+        }
+    }
+}